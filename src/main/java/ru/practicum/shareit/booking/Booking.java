@@ -1,6 +1,8 @@
 package ru.practicum.shareit.booking;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import ru.practicum.shareit.helpers.PooledSequenceGenerator;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 
@@ -13,11 +15,17 @@ import java.time.LocalDateTime;
 @Builder
 @Entity
 @Table(name = "bookings")
+@NamedEntityGraph(name = Booking.WITH_ITEM_AND_BOOKER,
+        attributeNodes = {@NamedAttributeNode(value = "item", subgraph = "item"), @NamedAttributeNode("booker")},
+        subgraphs = @NamedSubgraph(name = "item", attributeNodes = @NamedAttributeNode("request")))
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Booking {
 
+    public static final String WITH_ITEM_AND_BOOKER = "Booking.withItemAndBooker";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "bookings_seq")
+    @GenericGenerator(name = "bookings_seq", strategy = PooledSequenceGenerator.STRATEGY)
     @EqualsAndHashCode.Include
     private Long id;
 
@@ -38,4 +46,19 @@ public class Booking {
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
     private Status status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "phase", nullable = false, updatable = false)
+    private Phase phase;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @PrePersist
+    void initPhase() {
+        if (phase == null) {
+            phase = Phase.of(start, end, LocalDateTime.now());
+        }
+    }
 }
\ No newline at end of file
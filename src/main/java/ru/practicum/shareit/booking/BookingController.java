@@ -5,8 +5,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.helpers.TotalCountCache;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -38,6 +41,14 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.approveBooking(userId, bookingId, approved));
     }
 
+    @PatchMapping("/bulk")
+    public ResponseEntity<List<BookingDecisionResultDto>> approveAll(
+            @RequestBody List<BookingDecisionDto> decisions,
+            @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("Approve {} bookings by owner id = {}", decisions.size(), userId);
+        return ResponseEntity.ok(bookingService.approveBookings(userId, decisions));
+    }
+
     @GetMapping("/{bookingId}")
     public ResponseEntity<BookingOutputDto> getBookingById(@PathVariable Long bookingId,
                                                            @RequestHeader("X-Sharer-User-Id") Long userId) {
@@ -50,10 +61,18 @@ public class BookingController {
             @RequestHeader("X-Sharer-User-Id") Long userId,
             @RequestParam(defaultValue = "ALL", required = false) String state,
             @RequestParam(defaultValue = "0", required = false) Integer from,
-            @RequestParam(defaultValue = "10", required = false) Integer size
+            @RequestParam(defaultValue = "10", required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String total
     ) {
         log.info("Get all bookings, userId = {}, state = {}", userId, state);
-        return ResponseEntity.ok(bookingService.getAllBookingsByBookerId(userId, state, from, size));
+        ResponseEntity<List<BookingOutputDto>> response = cursor != null
+                ? bookingService.getAllBookingsByBookerId(userId, state, cursor, size).toResponseEntity()
+                : ResponseEntity.ok(bookingService.getAllBookingsByBookerId(userId, state, from, size));
+        if (total != null) {
+            return TotalCountCache.withTotal(response, bookingService.countAllBookingsByBookerId(userId, state, total));
+        }
+        return response;
     }
 
     @GetMapping("/owner")
@@ -61,9 +80,17 @@ public class BookingController {
             @RequestHeader("X-Sharer-User-Id") Long userId,
             @RequestParam(defaultValue = "ALL", required = false) String state,
             @RequestParam(defaultValue = "0", required = false) Integer from,
-            @RequestParam(defaultValue = "10", required = false) Integer size
+            @RequestParam(defaultValue = "10", required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String total
     ) {
         log.info("Get all bookings by  owner, userId = {}, state = {}", userId, state);
-        return ResponseEntity.ok(bookingService.getAllBookingsForAllItemsByOwnerId(userId, state, from, size));
+        ResponseEntity<List<BookingOutputDto>> response = cursor != null
+                ? bookingService.getAllBookingsForAllItemsByOwnerId(userId, state, cursor, size).toResponseEntity()
+                : ResponseEntity.ok(bookingService.getAllBookingsForAllItemsByOwnerId(userId, state, from, size));
+        if (total != null) {
+            return TotalCountCache.withTotal(response, bookingService.countAllBookingsForAllItemsByOwnerId(userId, state, total));
+        }
+        return response;
     }
 }
\ No newline at end of file
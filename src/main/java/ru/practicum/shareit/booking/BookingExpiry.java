@@ -0,0 +1,98 @@
+package ru.practicum.shareit.booking;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.helpers.TimingWheel;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Deadlines of waiting bookings, kept on a timing wheel so BookingExpiryJob only touches the bookings
+ * that are due. A booking expires afterStart past its start, or timeout after it was put on the wheel if
+ * that comes first. The wheel is filled from the waiting bookings on startup, so after a restart the
+ * timeout counts from the restart. Off by default, then nothing is kept.
+ */
+@Slf4j
+@Component
+public class BookingExpiry {
+
+    private final BookingRepo bookingRepo;
+    private final boolean enabled;
+    private final Duration afterStart;
+    private final Duration timeout;
+    private final TimingWheel<Long> wheel;
+
+    public BookingExpiry(BookingRepo bookingRepo,
+                         @Value("${shareit.booking.expiry.enabled:false}") boolean enabled,
+                         @Value("${shareit.booking.expiry.tick:PT1S}") Duration tick,
+                         @Value("${shareit.booking.expiry.after-start:PT0S}") Duration afterStart,
+                         @Value("${shareit.booking.expiry.timeout:PT0S}") Duration timeout) {
+        this.bookingRepo = bookingRepo;
+        this.enabled = enabled;
+        this.afterStart = afterStart;
+        this.timeout = timeout;
+        this.wheel = new TimingWheel<>(tick, Instant.now());
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        List<WaitingBooking> bookings = bookingRepo.findWaitingBookings(Status.WAITING);
+        for (WaitingBooking booking : bookings) {
+            schedule(booking.getId(), booking.getStart());
+        }
+        log.info("Booking expiry wheel built, {} waiting bookings", bookings.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void schedule(Long bookingId, LocalDateTime start) {
+        if (!enabled) {
+            return;
+        }
+
+        Instant deadline = start.plus(afterStart).atZone(ZoneId.systemDefault()).toInstant();
+        if (!timeout.isZero()) {
+            Instant timeoutDeadline = Instant.now().plus(timeout);
+            if (timeoutDeadline.isBefore(deadline)) {
+                deadline = timeoutDeadline;
+            }
+        }
+        wheel.schedule(bookingId, deadline);
+    }
+
+    /**
+     * Puts the bookings back to be handed out again on the next tick.
+     */
+    public void retry(Collection<Long> bookingIds) {
+        Instant now = Instant.now();
+        for (Long bookingId : bookingIds) {
+            wheel.schedule(bookingId, now);
+        }
+    }
+
+    public void cancel(Long bookingId) {
+        if (enabled) {
+            wheel.cancel(bookingId);
+        }
+    }
+
+    /**
+     * Takes the bookings whose deadline has passed off the wheel.
+     */
+    public List<Long> due() {
+        return wheel.advance(Instant.now());
+    }
+}
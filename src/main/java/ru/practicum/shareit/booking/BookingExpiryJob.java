@@ -0,0 +1,46 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rejects waiting bookings whose deadline on the BookingExpiry wheel has passed, in batches. A batch that
+ * fails, for example by conflicting with owner decisions every attempt, goes back on the wheel for the next tick.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingExpiryJob {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final BookingExpiry bookingExpiry;
+    private final BookingService bookingService;
+
+    @Scheduled(fixedDelayString = "${shareit.booking.expiry.tick:PT1S}",
+            initialDelayString = "${shareit.booking.expiry.tick:PT1S}")
+    public void expire() {
+        if (!bookingExpiry.isEnabled()) {
+            return;
+        }
+
+        List<Long> due = bookingExpiry.due();
+        int expired = 0;
+        for (int from = 0; from < due.size(); from += BATCH_SIZE) {
+            List<Long> batch = due.subList(from, Math.min(from + BATCH_SIZE, due.size()));
+            try {
+                expired += bookingService.expireBookings(batch);
+            } catch (RuntimeException e) {
+                log.warn("Expiry of {} bookings failed, retrying on the next tick: {}", batch.size(), e.getMessage());
+                bookingExpiry.retry(batch);
+            }
+        }
+        if (expired > 0) {
+            log.info("Waiting bookings expired, {} rejected", expired);
+        }
+    }
+}
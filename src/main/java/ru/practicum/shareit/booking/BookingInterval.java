@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Getter
+@RequiredArgsConstructor
+public class BookingInterval {
+    private final Long id;
+    private final Long itemId;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final Status status;
+}
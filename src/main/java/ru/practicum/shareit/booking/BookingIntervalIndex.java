@@ -0,0 +1,203 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exceptions.ConflictException;
+import ru.practicum.shareit.item.dto.FreeSlotDto;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Waiting and approved booking intervals of every item, used to reject overlapping bookings.
+ * Intervals of an item are kept sorted by start and never overlap, so a check is one lookup
+ * of the interval starting last before the end of the requested one.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingIntervalIndex {
+
+    private final BookingRepo bookingRepo;
+
+    private final Map<Long, ItemIntervals> items = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        List<BookingInterval> intervals = bookingRepo.findIntervals(List.of(Status.WAITING, Status.APPROVED), LocalDateTime.now());
+
+        items.clear();
+        int skipped = 0;
+        for (BookingInterval interval : intervals) {
+            boolean added = items.computeIfAbsent(interval.getItemId(), id -> new ItemIntervals())
+                    .add(interval.getStart(), interval.getEnd(), interval.getStatus() == Status.APPROVED);
+            if (!added) {
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            log.warn("{} bookings overlap earlier ones of their item and are left out of the interval index", skipped);
+        }
+        log.info("Booking interval index built, {} bookings", intervals.size() - skipped);
+    }
+
+    /**
+     * Takes the [start, end) interval of the item or throws ConflictException if it overlaps a taken one.
+     */
+    public void reserve(long itemId, LocalDateTime start, LocalDateTime end) {
+        ItemIntervals intervals = items.computeIfAbsent(itemId, id -> new ItemIntervals());
+
+        synchronized (intervals) {
+            intervals.prune(LocalDateTime.now());
+            if (!intervals.add(start, end, false)) {
+                throw new ConflictException("Item " + itemId + " is already booked between " + start + " and " + end);
+            }
+        }
+    }
+
+    /**
+     * Whether exactly this interval is taken for the item, a booking left out by rebuild is not.
+     */
+    public boolean holds(long itemId, LocalDateTime start, LocalDateTime end) {
+        ItemIntervals intervals = items.get(itemId);
+        if (intervals == null) {
+            return false;
+        }
+
+        synchronized (intervals) {
+            return intervals.holds(start, end);
+        }
+    }
+
+    public void approve(long itemId, LocalDateTime start, LocalDateTime end) {
+        ItemIntervals intervals = items.get(itemId);
+        if (intervals == null) {
+            return;
+        }
+
+        synchronized (intervals) {
+            intervals.approve(start, end);
+        }
+    }
+
+    public void release(long itemId, LocalDateTime start, LocalDateTime end) {
+        ItemIntervals intervals = items.get(itemId);
+        if (intervals == null) {
+            return;
+        }
+
+        synchronized (intervals) {
+            intervals.remove(start, end);
+        }
+    }
+
+    /**
+     * Windows inside [from, to) not covered by approved bookings of the item, found by one sweep
+     * over the approved intervals in start order.
+     */
+    public List<FreeSlotDto> freeSlots(long itemId, LocalDateTime from, LocalDateTime to) {
+        List<FreeSlotDto> result = new ArrayList<>();
+        LocalDateTime freeFrom = from;
+
+        ItemIntervals intervals = items.get(itemId);
+        if (intervals != null) {
+            synchronized (intervals) {
+                for (Map.Entry<LocalDateTime, Taken> entry : intervals.startingBetween(from, to).entrySet()) {
+                    Taken taken = entry.getValue();
+                    if (!taken.approved || !taken.end.isAfter(freeFrom)) {
+                        continue;
+                    }
+                    if (entry.getKey().isAfter(freeFrom)) {
+                        result.add(slot(freeFrom, entry.getKey()));
+                    }
+                    freeFrom = taken.end;
+                }
+            }
+        }
+
+        if (freeFrom.isBefore(to)) {
+            result.add(slot(freeFrom, to));
+        }
+        return result;
+    }
+
+    private static FreeSlotDto slot(LocalDateTime start, LocalDateTime end) {
+        return FreeSlotDto.builder()
+                .start(start)
+                .end(end)
+                .build();
+    }
+
+    private static final class Taken {
+        private final LocalDateTime end;
+        private boolean approved;
+
+        private Taken(LocalDateTime end, boolean approved) {
+            this.end = end;
+            this.approved = approved;
+        }
+    }
+
+    /**
+     * Intervals of one item by start. They never overlap, so they are sorted by end as well and the only
+     * interval that can overlap [start, end) is the last one starting before end.
+     */
+    private static final class ItemIntervals {
+        private final NavigableMap<LocalDateTime, Taken> takenByStart = new TreeMap<>();
+
+        private NavigableMap<LocalDateTime, Taken> startingBetween(LocalDateTime from, LocalDateTime to) {
+            LocalDateTime first = takenByStart.floorKey(from);
+            return takenByStart.subMap(first == null ? from : first, true, to, false);
+        }
+
+        private boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            Map.Entry<LocalDateTime, Taken> before = takenByStart.lowerEntry(end);
+            return before != null && before.getValue().end.isAfter(start);
+        }
+
+        /**
+         * Returns false and keeps the index unchanged if the interval overlaps a taken one.
+         */
+        private boolean add(LocalDateTime start, LocalDateTime end, boolean approved) {
+            if (overlaps(start, end)) {
+                return false;
+            }
+            takenByStart.put(start, new Taken(end, approved));
+            return true;
+        }
+
+        private boolean holds(LocalDateTime start, LocalDateTime end) {
+            Taken taken = takenByStart.get(start);
+            return taken != null && taken.end.equals(end);
+        }
+
+        private void approve(LocalDateTime start, LocalDateTime end) {
+            Taken taken = takenByStart.get(start);
+            if (taken != null && taken.end.equals(end)) {
+                taken.approved = true;
+            }
+        }
+
+        private void remove(LocalDateTime start, LocalDateTime end) {
+            Taken taken = takenByStart.get(start);
+            if (taken != null && taken.end.equals(end)) {
+                takenByStart.remove(start);
+            }
+        }
+
+        private void prune(LocalDateTime now) {
+            Map.Entry<LocalDateTime, Taken> first = takenByStart.firstEntry();
+            while (first != null && !first.getValue().end.isAfter(now)) {
+                takenByStart.pollFirstEntry();
+                first = takenByStart.firstEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.shareit.booking;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Single-threaded lanes for booking changes. A change runs on the lane its item id hashes to, so changes
+ * of one item are applied one after another and never wait on each other's locks, while items of other
+ * lanes are processed in parallel. Off by default, then a change runs on the calling thread.
+ */
+@Slf4j
+@Component
+public class BookingLanes {
+
+    private final ExecutorService[] lanes;
+
+    public BookingLanes(@Value("${shareit.booking.lanes.enabled:false}") boolean enabled,
+                        @Value("${shareit.booking.lanes.count:0}") int count) {
+        int size = count > 0 ? count : Runtime.getRuntime().availableProcessors();
+
+        lanes = new ExecutorService[enabled ? size : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "booking-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> new LaneThread(runnable, name));
+        }
+        if (enabled) {
+            log.info("Booking lanes enabled, {} lanes", size);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the change on the lane of the item and waits for it. The item id is only looked up when
+     * lanes are on. A change started from a lane runs in place, so nested calls do not deadlock.
+     */
+    public <T> T run(LongSupplier itemId, Supplier<T> change) {
+        if (lanes.length == 0 || Thread.currentThread() instanceof LaneThread) {
+            return change.get();
+        }
+
+        long id = itemId.getAsLong();
+        Future<T> result = lanes[Math.floorMod(Long.hashCode(id), lanes.length)].submit(change::get);
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the lane of item " + id, e);
+        }
+    }
+
+    private static final class LaneThread extends Thread {
+        private LaneThread(Runnable runnable, String name) {
+            super(runnable, name);
+            setDaemon(true);
+        }
+    }
+}
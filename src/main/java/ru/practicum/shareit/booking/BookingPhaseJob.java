@@ -0,0 +1,36 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves bookings to the next phase as they start and end. Bookings that ended are moved first,
+ * so a booking that started and ended since the last run goes straight to PAST. Only this job writes
+ * the phase after insert, so the updates leave the version alone and do not conflict with status changes.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingPhaseJob {
+
+    private final BookingRepo bookingRepo;
+
+    @Scheduled(fixedDelayString = "${shareit.booking.phase.interval:PT1M}",
+            initialDelayString = "${shareit.booking.phase.interval:PT1M}")
+    @Transactional
+    public void advance() {
+        LocalDateTime now = LocalDateTime.now();
+
+        int ended = bookingRepo.updatePhaseOfEnded(List.of(Phase.FUTURE, Phase.CURRENT), Phase.PAST, now);
+        int started = bookingRepo.updatePhaseOfStarted(Phase.FUTURE, Phase.CURRENT, now);
+        if (ended > 0 || started > 0) {
+            log.info("Booking phases advanced, {} started, {} ended", started, ended);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filter of the booking lists: bookings made by the user or bookings of the user's items,
+ * narrowed by state relative to the given moment. Time states narrow by the stored booking
+ * phase first and then check start and end, since the phase may lag behind by up to one
+ * BookingPhaseJob run.
+ */
+@Getter
+@Builder
+public class BookingQuery {
+    private final long userId;
+    private final boolean byOwner;
+    private final BookingState state;
+    private final LocalDateTime now;
+
+    public boolean isAscending() {
+        return state == BookingState.CURRENT;
+    }
+}
@@ -1,39 +1,74 @@
 package ru.practicum.shareit.booking;
 
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BookingRepo extends JpaRepository<Booking, Long> {
+public interface BookingRepo extends JpaRepository<Booking, Long>, BookingRepoCustom {
 
-    Page<Booking> findAllByBookerIdOrderByStartDesc(long bookerId, Pageable pageable);
+    @Query("select b from Booking b where b.item.id = ?1 and b.status = ?2 and b.start > ?3 order by b.start asc")
+    List<Booking> findByItemIdAndStatusAndStartAfter(long itemId, Status status, LocalDateTime dateTime, Pageable pageable);
 
-    Page<Booking> findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartAsc(long bookerId, LocalDateTime start, LocalDateTime end, Pageable pageable);
+    @Query("select b from Booking b where b.item.id = ?1 and b.status = ?2 and b.start < ?3 order by b.start desc")
+    List<Booking> findByItemIdAndStatusAndStartBefore(long itemId, Status status, LocalDateTime dateTime, Pageable pageable);
 
-    Page<Booking> findAllByBookerIdAndEndBeforeOrderByStartDesc(long bookerId, LocalDateTime dateTime, Pageable pageable);
+    @Query("select b from Booking b where b.item.id = ?1 and b.booker.id = ?2 and b.status = ?3 and b.end < ?4")
+    List<Booking> findByItemIdAndBookerIdAndStatusAndEndBefore(long itemId, long bookerId, Status status, LocalDateTime dateTime, Pageable pageable);
 
-    Page<Booking> findAllByBookerIdAndStartAfterOrderByStartDesc(long bookerId, LocalDateTime dateTime, Pageable pageable);
+    default Optional<Booking> findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(long itemId, Status status, LocalDateTime dateTime) {
+        return findByItemIdAndStatusAndStartAfter(itemId, status, dateTime, PageRequest.of(0, 1)).stream().findFirst();
+    }
 
-    Page<Booking> findAllByBookerIdAndStatusOrderByStartDesc(long bookerId, Status status, Pageable pageable);
+    default Optional<Booking> findFirstByItemIdAndStatusAndStartBeforeOrderByStartDesc(long itemId, Status status, LocalDateTime dateTime) {
+        return findByItemIdAndStatusAndStartBefore(itemId, status, dateTime, PageRequest.of(0, 1)).stream().findFirst();
+    }
 
-    Page<Booking> findAllByItemOwnerIdOrderByStartDesc(long ownerId, Pageable pageable);
+    default Optional<Booking> findFirstByItemIdAndBookerIdAndStatusAndEndBefore(long itemId, long bookerId, Status status, LocalDateTime dateTime) {
+        return findByItemIdAndBookerIdAndStatusAndEndBefore(itemId, bookerId, status, dateTime, PageRequest.of(0, 1)).stream().findFirst();
+    }
 
-    Page<Booking> findAllByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartAsc(long ownerId, LocalDateTime start, LocalDateTime end, Pageable pageable);
+    @Query("select b from Booking b where b.item.id in ?1 and b.status = ?2 and b.start = " +
+            "(select max(b2.start) from Booking b2 where b2.item.id = b.item.id and b2.status = ?2 and b2.start < ?3)")
+    List<Booking> findLastBookingsByItemIds(Collection<Long> itemIds, Status status, LocalDateTime dateTime);
 
-    Page<Booking> findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(long ownerId, LocalDateTime dateTime, Pageable pageable);
+    @Query("select b from Booking b where b.item.id in ?1 and b.status = ?2 and b.start = " +
+            "(select min(b2.start) from Booking b2 where b2.item.id = b.item.id and b2.status = ?2 and b2.start > ?3)")
+    List<Booking> findNextBookingsByItemIds(Collection<Long> itemIds, Status status, LocalDateTime dateTime);
 
-    Page<Booking> findAllByItemOwnerIdAndStartAfterOrderByStartDesc(long ownerId, LocalDateTime dateTime, Pageable pageable);
+    @Query("select b.item.id from Booking b where b.id = ?1")
+    Optional<Long> findItemIdById(long id);
 
-    Page<Booking> findAllByItemOwnerIdAndStatusOrderByStartDesc(long ownerId, Status status, Pageable pageable);
+    @Query("select b from Booking b join fetch b.item i left join fetch i.request where b.id in ?1 and i.owner.id = ?2")
+    List<Booking> findByIdInAndOwnerId(Collection<Long> ids, long ownerId);
 
-    Optional<Booking> findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(long itemId, Status status, LocalDateTime dateTime);
+    @Modifying
+    @Query("update Booking b set b.phase = ?2 where b.phase in ?1 and b.end < ?3")
+    int updatePhaseOfEnded(Collection<Phase> phases, Phase phase, LocalDateTime now);
 
-    Optional<Booking> findFirstByItemIdAndStatusAndStartBeforeOrderByStartDesc(long itemId, Status status, LocalDateTime dateTime);
+    @Modifying
+    @Query("update Booking b set b.phase = ?2 where b.phase = ?1 and b.start < ?3")
+    int updatePhaseOfStarted(Phase from, Phase to, LocalDateTime now);
 
-    Optional<Booking> findFirstByItemIdAndBookerIdAndStatusAndEndBefore(long itemId, long bookerId, Status status, LocalDateTime dateTime);
-}
\ No newline at end of file
+    @Query("select new ru.practicum.shareit.booking.BookingInterval(b.id, b.item.id, b.start, b.end, b.status) " +
+            "from Booking b where b.status in ?1 and b.end > ?2")
+    List<BookingInterval> findIntervals(Collection<Status> statuses, LocalDateTime endAfter);
+
+    @Query("select new ru.practicum.shareit.booking.BookingInterval(b.id, i.id, b.start, b.end, b.status) " +
+            "from Booking b join b.item i where (b.booker.id = ?1 or i.owner.id = ?1) and b.status in ?2 and b.end > ?3")
+    List<BookingInterval> findIntervalsOfUser(long userId, Collection<Status> statuses, LocalDateTime endAfter);
+
+    @Query("select new ru.practicum.shareit.booking.WaitingBooking(b.id, b.start) from Booking b where b.status = ?1")
+    List<WaitingBooking> findWaitingBookings(Status status);
+
+    @Query("select b from Booking b join fetch b.item i left join fetch i.request where b.id in ?1 and b.status = ?2")
+    List<Booking> findByIdInAndStatus(Collection<Long> ids, Status status);
+}
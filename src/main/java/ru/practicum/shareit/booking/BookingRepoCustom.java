@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import ru.practicum.shareit.helpers.PageCursor;
+
+import java.util.List;
+
+public interface BookingRepoCustom {
+
+    /**
+     * Offset page of the bookings matching the query, start descending (ascending for CURRENT), then by id.
+     */
+    Slice<Booking> findByQuery(BookingQuery query, Pageable pageable);
+
+    /**
+     * Keyset page of the bookings matching the query, in the same order as findByQuery.
+     * Returns up to cursor size + 1 rows.
+     */
+    List<Booking> findPageAfter(BookingQuery query, PageCursor cursor);
+
+    long countByQuery(BookingQuery query);
+}
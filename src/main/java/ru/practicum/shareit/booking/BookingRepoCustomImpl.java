@@ -0,0 +1,126 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import ru.practicum.shareit.helpers.PageCursor;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.AbstractQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BookingRepoCustomImpl implements BookingRepoCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<Booking> findByQuery(BookingQuery query, Pageable pageable) {
+        List<Booking> rows = select(query, null)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    @Override
+    public List<Booking> findPageAfter(BookingQuery query, PageCursor cursor) {
+        return select(query, cursor)
+                .setMaxResults(cursor.getSize() + 1)
+                .getResultList();
+    }
+
+    @Override
+    public long countByQuery(BookingQuery query) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> criteria = cb.createQuery(Long.class);
+        Root<Booking> booking = criteria.from(Booking.class);
+
+        criteria.select(cb.count(booking))
+                .where(filter(cb, criteria, booking, query).toArray(new Predicate[0]));
+
+        return entityManager.createQuery(criteria).getSingleResult();
+    }
+
+    private TypedQuery<Booking> select(BookingQuery query, PageCursor cursor) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Booking> criteria = cb.createQuery(Booking.class);
+        Root<Booking> booking = criteria.from(Booking.class);
+
+        List<Predicate> predicates = filter(cb, criteria, booking, query);
+
+        boolean ascending = query.isAscending();
+        if (cursor != null && !cursor.isFirst()) {
+            LocalDateTime start = cursor.getKeyAsDateTime();
+            if (ascending) {
+                predicates.add(cb.or(
+                        cb.greaterThan(booking.get("start"), start),
+                        cb.and(cb.equal(booking.get("start"), start), cb.greaterThan(booking.get("id"), cursor.getId()))));
+            } else {
+                predicates.add(cb.or(
+                        cb.lessThan(booking.get("start"), start),
+                        cb.and(cb.equal(booking.get("start"), start), cb.lessThan(booking.get("id"), cursor.getId()))));
+            }
+        }
+
+        criteria.select(booking)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(ascending
+                        ? List.of(cb.asc(booking.get("start")), cb.asc(booking.get("id")))
+                        : List.of(cb.desc(booking.get("start")), cb.desc(booking.get("id"))));
+
+        return entityManager.createQuery(criteria)
+                .setHint("javax.persistence.fetchgraph", entityManager.getEntityGraph(Booking.WITH_ITEM_AND_BOOKER));
+    }
+
+    private static List<Predicate> filter(CriteriaBuilder cb, AbstractQuery<?> criteria, Root<Booking> booking, BookingQuery query) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (query.isByOwner()) {
+            Subquery<Long> ownerItems = criteria.subquery(Long.class);
+            Root<Item> item = ownerItems.from(Item.class);
+            ownerItems.select(item.get("id")).where(cb.equal(item.get("owner").get("id"), query.getUserId()));
+            predicates.add(booking.get("item").get("id").in(ownerItems));
+        } else {
+            predicates.add(cb.equal(booking.get("booker").get("id"), query.getUserId()));
+        }
+
+        LocalDateTime now = query.getNow();
+        switch (query.getState()) {
+            case CURRENT:
+                predicates.add(booking.get("phase").in(Phase.FUTURE, Phase.CURRENT));
+                predicates.add(cb.lessThan(booking.get("start"), now));
+                predicates.add(cb.greaterThan(booking.get("end"), now));
+                break;
+            case PAST:
+                predicates.add(cb.or(
+                        cb.equal(booking.get("phase"), Phase.PAST),
+                        cb.and(booking.get("phase").in(Phase.FUTURE, Phase.CURRENT), cb.lessThan(booking.get("end"), now))));
+                break;
+            case FUTURE:
+                predicates.add(cb.equal(booking.get("phase"), Phase.FUTURE));
+                predicates.add(cb.greaterThan(booking.get("start"), now));
+                break;
+            case WAITING:
+                predicates.add(cb.equal(booking.get("status"), Status.WAITING));
+                break;
+            case REJECTED:
+                predicates.add(cb.equal(booking.get("status"), Status.REJECTED));
+                break;
+            default:
+                break;
+        }
+        return predicates;
+    }
+}
@@ -1,7 +1,10 @@
 package ru.practicum.shareit.booking;
 
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.helpers.CursorPage;
 
 import java.util.List;
 
@@ -12,9 +15,21 @@ public interface BookingService {
 
     BookingOutputDto approveBooking(long userId, long bookingId, Boolean approved);
 
+    List<BookingDecisionResultDto> approveBookings(long userId, List<BookingDecisionDto> decisions);
+
+    int expireBookings(List<Long> bookingIds);
+
     BookingOutputDto getBookingById(long userId, long bookingId);
 
     List<BookingOutputDto> getAllBookingsByBookerId(long userId, String state, Integer from, Integer size);
 
     List<BookingOutputDto> getAllBookingsForAllItemsByOwnerId(long userId, String state, Integer from, Integer size);
-}
\ No newline at end of file
+
+    CursorPage<BookingOutputDto> getAllBookingsByBookerId(long userId, String state, String cursor, Integer size);
+
+    CursorPage<BookingOutputDto> getAllBookingsForAllItemsByOwnerId(long userId, String state, String cursor, Integer size);
+
+    long countAllBookingsByBookerId(long userId, String state, String total);
+
+    long countAllBookingsForAllItemsByOwnerId(long userId, String state, String total);
+}
@@ -2,40 +2,75 @@ package ru.practicum.shareit.booking;
 
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.exceptions.ConflictException;
 import ru.practicum.shareit.exceptions.NotFoundException;
 import ru.practicum.shareit.exceptions.ValidationException;
+import ru.practicum.shareit.helpers.CursorPage;
 import ru.practicum.shareit.helpers.HelperService;
+import ru.practicum.shareit.helpers.PageCursor;
+import ru.practicum.shareit.helpers.TotalCountCache;
+import ru.practicum.shareit.helpers.TotalMode;
+import ru.practicum.shareit.helpers.TransactionCallbacks;
+import ru.practicum.shareit.item.ItemInfoCache;
 import ru.practicum.shareit.item.ItemRepo;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.UserRepo;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class BookingServiceImpl implements BookingService {
+
+    private static final int MAX_APPROVE_ATTEMPTS = 3;
+    private static final int MAX_BULK_DECISIONS = 1000;
+
     private final BookingRepo bookingRepo;
-    private final UserRepo userRepo;
     private final ItemRepo itemRepo;
     private final HelperService helperService;
+    private final ItemInfoCache itemInfoCache;
+    private final TotalCountCache totalCountCache;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingLanes bookingLanes;
+    private final BookingExpiry bookingExpiry;
 
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     @Override
     public BookingOutputDto addBooking(BookingDto bookingDto, long userId) {
+        if (bookingDto.getItemId() == null) {
+            throw new ValidationException("Item id is required");
+        }
+        return bookingLanes.run(bookingDto::getItemId,
+                () -> transactionTemplate.execute(status -> createBooking(bookingDto, userId)));
+    }
 
-        Item item = itemRepo.findById(bookingDto.getItemId())
-                .orElseThrow(() -> new NotFoundException("item not found"));
-        User user = userRepo.findById(userId)
-                .orElseThrow(() -> new NotFoundException("user not found"));
+    private BookingOutputDto createBooking(BookingDto bookingDto, long userId) {
+
+        Item item = helperService.getItem(bookingDto.getItemId());
+        User user = helperService.getUser(userId);
 
         Booking booking = BookingMapper.returnBooking(bookingDto);
         booking.setItem(item);
@@ -54,40 +89,215 @@ public class BookingServiceImpl implements BookingService {
             throw new ValidationException("Start cannot be equal than end");
         }
 
+        if (booking.getStatus() == Status.WAITING || booking.getStatus() == Status.APPROVED) {
+            reserve(booking);
+        }
+        if (booking.getStatus() == Status.APPROVED) {
+            LocalDateTime start = booking.getStart();
+            LocalDateTime end = booking.getEnd();
+            TransactionCallbacks.afterCommit(() -> bookingIntervalIndex.approve(item.getId(), start, end));
+        }
+
         bookingRepo.save(booking);
+        TransactionCallbacks.afterCommit(() -> {
+            itemInfoCache.evictOwnerView(item.getId());
+            if (booking.getStatus() == Status.WAITING) {
+                bookingExpiry.schedule(booking.getId(), booking.getStart());
+            }
+        });
 
         return BookingMapper.toBookingDto(booking);
     }
 
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     @Override
     public BookingOutputDto approveBooking(long userId, long bookingId, Boolean approved) {
+        return bookingLanes.run(() -> itemIdOf(bookingId),
+                () -> retryOnConflict(() -> changeStatus(userId, bookingId, approved),
+                        "Booking " + bookingId + " was changed concurrently, try again"));
+    }
+
+    /**
+     * Ownership of all the bookings is checked with one query, the changed bookings are written with one
+     * JDBC batch of versioned updates on commit. A decision that can not be applied is reported in its
+     * result and does not stop the others. When the batch still conflicts after MAX_APPROVE_ATTEMPTS,
+     * the bookings changed in between are reported as CONFLICT and the rest is applied without them.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public List<BookingDecisionResultDto> approveBookings(long userId, List<BookingDecisionDto> decisions) {
+        if (decisions.size() > MAX_BULK_DECISIONS) {
+            throw new ValidationException("At most " + MAX_BULK_DECISIONS + " bookings can be approved at once");
+        }
+
+        Set<Long> conflicted = new HashSet<>();
+        Map<Long, Long> versions = new HashMap<>();
+        for (int attempt = 1; ; attempt++) {
+            versions.clear();
+            try {
+                return transactionTemplate.execute(status -> changeStatuses(userId, decisions, conflicted, versions));
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_APPROVE_ATTEMPTS) {
+                    Set<Long> changed = changedSince(versions);
+                    if (changed.isEmpty()) {
+                        throw new ConflictException("Bookings of owner " + userId + " were changed concurrently, try again");
+                    }
+                    conflicted.addAll(changed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rejects the bookings that are still waiting, the others were decided since their deadline was set.
+     * Bookings of different items are expired together, so this does not go through the booking lanes.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public int expireBookings(List<Long> bookingIds) {
+        return retryOnConflict(() -> {
+            List<Booking> bookings = bookingRepo.findByIdInAndStatus(bookingIds, Status.WAITING);
+            Set<Long> itemIds = new HashSet<>();
+            for (Booking booking : bookings) {
+                applyDecision(booking, false);
+                itemIds.add(booking.getItem().getId());
+            }
+            TransactionCallbacks.afterCommit(() -> itemIds.forEach(itemInfoCache::evictOwnerView));
+            return bookings.size();
+        }, "Waiting bookings were changed concurrently, try again");
+    }
+
+    /**
+     * Every attempt runs in its own transaction and reads the bookings again, the versioned update fails
+     * if another call changed a booking in between. After MAX_APPROVE_ATTEMPTS such failures the caller
+     * gets a 409.
+     */
+    private <T> T retryOnConflict(Supplier<T> action, String conflictMessage) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt == MAX_APPROVE_ATTEMPTS) {
+                    throw new ConflictException(conflictMessage);
+                }
+            }
+        }
+    }
 
-        helperService.checkBooking(bookingId);
-        Booking booking = bookingRepo.findById(bookingId).get();
+    private BookingOutputDto changeStatus(long userId, long bookingId, Boolean approved) {
+
+        Booking booking = helperService.getBooking(bookingId);
         if (booking.getItem().getOwner().getId() != userId) {
             throw new NotFoundException(User.class, "Only owner " + userId + " items can change booking status");
         }
 
+        applyDecision(booking, approved);
+
+        bookingRepo.save(booking);
+        long itemId = booking.getItem().getId();
+        TransactionCallbacks.afterCommit(() -> itemInfoCache.evictOwnerView(itemId));
+        return BookingMapper.toBookingDto(booking);
+    }
+
+    private List<BookingDecisionResultDto> changeStatuses(long userId, List<BookingDecisionDto> decisions,
+                                                          Set<Long> conflicted, Map<Long, Long> versions) {
+
+        helperService.checkUser(userId);
+
+        Set<Long> bookingIds = decisions.stream()
+                .filter(Objects::nonNull)
+                .map(BookingDecisionDto::getBookingId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Booking> bookings = bookingIds.isEmpty() ? Map.of() : bookingRepo.findByIdInAndOwnerId(bookingIds, userId).stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+
+        List<BookingDecisionResultDto> results = new ArrayList<>();
+        Set<Long> decided = new HashSet<>();
+        Set<Long> itemIds = new HashSet<>();
+        for (BookingDecisionDto decision : decisions) {
+            Long bookingId = decision == null ? null : decision.getBookingId();
+            Booking booking = bookingId == null ? null : bookings.get(bookingId);
+
+            if (bookingId == null || decision.getApproved() == null) {
+                results.add(BookingDecisionResultDto.of(bookingId, DecisionOutcome.INVALID, null,
+                        "bookingId and approved are required"));
+            } else if (booking == null) {
+                results.add(BookingDecisionResultDto.of(bookingId, DecisionOutcome.NOT_FOUND, null,
+                        "Booking " + bookingId + " of owner " + userId + " not found"));
+            } else if (!decided.add(bookingId)) {
+                results.add(BookingDecisionResultDto.of(bookingId, DecisionOutcome.INVALID, booking.getStatus(),
+                        "Booking " + bookingId + " is repeated in the request"));
+            } else if (conflicted.contains(bookingId)) {
+                results.add(BookingDecisionResultDto.of(bookingId, DecisionOutcome.CONFLICT, booking.getStatus(),
+                        "Booking " + bookingId + " was changed concurrently, try again"));
+            } else {
+                try {
+                    Long version = booking.getVersion();
+                    applyDecision(booking, decision.getApproved());
+                    versions.put(bookingId, version);
+                    itemIds.add(booking.getItem().getId());
+                    results.add(BookingDecisionResultDto.of(bookingId, DecisionOutcome.APPLIED, booking.getStatus(), null));
+                } catch (ValidationException e) {
+                    results.add(BookingDecisionResultDto.of(bookingId, DecisionOutcome.INVALID, booking.getStatus(), e.getMessage()));
+                } catch (ConflictException e) {
+                    results.add(BookingDecisionResultDto.of(bookingId, DecisionOutcome.CONFLICT, booking.getStatus(), e.getMessage()));
+                }
+            }
+        }
+
+        TransactionCallbacks.afterCommit(() -> itemIds.forEach(itemInfoCache::evictOwnerView));
+        return results;
+    }
+
+    /**
+     * Ids of the bookings whose version moved on or that are gone since they were read.
+     */
+    private Set<Long> changedSince(Map<Long, Long> versions) {
+        Set<Long> changed = new HashSet<>(versions.keySet());
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Booking booking : bookingRepo.findAllById(versions.keySet())) {
+                if (Objects.equals(booking.getVersion(), versions.get(booking.getId()))) {
+                    changed.remove(booking.getId());
+                }
+            }
+        });
+        return changed;
+    }
+
+    private void applyDecision(Booking booking, boolean approved) {
+        Status previous = booking.getStatus();
+        Long bookingId = booking.getId();
+        long itemId = booking.getItem().getId();
+        LocalDateTime start = booking.getStart();
+        LocalDateTime end = booking.getEnd();
+
+        if (previous == Status.WAITING) {
+            TransactionCallbacks.afterCommit(() -> bookingExpiry.cancel(bookingId));
+        }
+
         if (approved) {
-            if (booking.getStatus().equals(Status.APPROVED)) {
+            if (previous == Status.APPROVED) {
                 throw new ValidationException("Incorrect status update request");
             }
+            if (previous != Status.WAITING || !bookingIntervalIndex.holds(itemId, start, end)) {
+                reserve(itemId, start, end);
+            }
             booking.setStatus(Status.APPROVED);
+            TransactionCallbacks.afterCommit(() -> bookingIntervalIndex.approve(itemId, start, end));
         } else {
+            if (previous == Status.WAITING || previous == Status.APPROVED) {
+                TransactionCallbacks.afterCommit(() -> bookingIntervalIndex.release(itemId, start, end));
+            }
             booking.setStatus(Status.REJECTED);
         }
-
-        bookingRepo.save(booking);
-        return BookingMapper.toBookingDto(booking);
     }
 
     @Transactional(readOnly = true)
     @Override
     public BookingOutputDto getBookingById(long userId, long bookingId) {
 
-        helperService.checkBooking(bookingId);
-        Booking booking = bookingRepo.findById(bookingId).get();
+        Booking booking = helperService.getBooking(bookingId);
 
         helperService.checkUser(userId);
 
@@ -105,30 +315,7 @@ public class BookingServiceImpl implements BookingService {
         helperService.checkUser(userId);
         PageRequest pageRequest = helperService.checkPageSize(from, size);
 
-        Page<Booking> bookings = null;
-        BookingState bookingState = BookingState.getEnumValue(state);
-
-        switch (bookingState) {
-            case ALL:
-                bookings = bookingRepo.findAllByBookerIdOrderByStartDesc(userId, pageRequest);
-                break;
-            case CURRENT:
-                bookings = bookingRepo.findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartAsc(userId, LocalDateTime.now(), LocalDateTime.now(), pageRequest);
-                break;
-            case PAST:
-                bookings = bookingRepo.findAllByBookerIdAndEndBeforeOrderByStartDesc(userId, LocalDateTime.now(), pageRequest);
-                break;
-            case FUTURE:
-                bookings = bookingRepo.findAllByBookerIdAndStartAfterOrderByStartDesc(userId, LocalDateTime.now(), pageRequest);
-                break;
-            case WAITING:
-                bookings = bookingRepo.findAllByBookerIdAndStatusOrderByStartDesc(userId, Status.WAITING, pageRequest);
-                break;
-            case REJECTED:
-                bookings = bookingRepo.findAllByBookerIdAndStatusOrderByStartDesc(userId, Status.REJECTED, pageRequest);
-                break;
-
-        }
+        Slice<Booking> bookings = bookingRepo.findByQuery(query(userId, false, state), pageRequest);
         return BookingMapper.returnBookingDtoList(bookings);
     }
 
@@ -138,34 +325,86 @@ public class BookingServiceImpl implements BookingService {
 
         helperService.checkUser(userId);
         PageRequest pageRequest = helperService.checkPageSize(from, size);
-        if (itemRepo.findByOwnerId(userId).isEmpty()) {
-            throw new ValidationException("User does not have for booking");
-        }
+        checkOwnerHasItems(userId);
+
+        Slice<Booking> bookings = bookingRepo.findByQuery(query(userId, true, state), pageRequest);
+        return BookingMapper.returnBookingDtoList(bookings);
+    }
 
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<BookingOutputDto> getAllBookingsByBookerId(long userId, String state, String cursor, Integer size) {
 
-        Page<Booking> bookings = null;
-        BookingState bookingState = BookingState.getEnumValue(state);
-
-        switch (bookingState) {
-            case ALL:
-                bookings = bookingRepo.findAllByItemOwnerIdOrderByStartDesc(userId, pageRequest);
-                break;
-            case CURRENT:
-                bookings = bookingRepo.findAllByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartAsc(userId, LocalDateTime.now(), LocalDateTime.now(), pageRequest);
-                break;
-            case PAST:
-                bookings = bookingRepo.findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(userId, LocalDateTime.now(), pageRequest);
-                break;
-            case FUTURE:
-                bookings = bookingRepo.findAllByItemOwnerIdAndStartAfterOrderByStartDesc(userId, LocalDateTime.now(), pageRequest);
-                break;
-            case WAITING:
-                bookings = bookingRepo.findAllByItemOwnerIdAndStatusOrderByStartDesc(userId, Status.WAITING, pageRequest);
-                break;
-            case REJECTED:
-                bookings = bookingRepo.findAllByItemOwnerIdAndStatusOrderByStartDesc(userId, Status.REJECTED, pageRequest);
-                break;
+        helperService.checkUser(userId);
+        PageCursor pageCursor = helperService.checkCursor(cursor, size);
+
+        return findPageAfter(userId, false, state, pageCursor);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public CursorPage<BookingOutputDto> getAllBookingsForAllItemsByOwnerId(long userId, String state, String cursor, Integer size) {
+
+        helperService.checkUser(userId);
+        PageCursor pageCursor = helperService.checkCursor(cursor, size);
+        checkOwnerHasItems(userId);
+
+        return findPageAfter(userId, true, state, pageCursor);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public long countAllBookingsByBookerId(long userId, String state, String total) {
+        return countAll(userId, false, state, total);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public long countAllBookingsForAllItemsByOwnerId(long userId, String state, String total) {
+        return countAll(userId, true, state, total);
+    }
+
+    private long countAll(long userId, boolean byOwner, String state, String total) {
+        BookingQuery query = query(userId, byOwner, state);
+        TotalMode totalMode = TotalMode.getEnumValue(total);
+        String key = (byOwner ? "bookings:owner:" : "bookings:booker:") + userId + ":" + query.getState();
+
+        return totalCountCache.count(key, totalMode, () -> bookingRepo.countByQuery(query));
+    }
+
+    private CursorPage<BookingOutputDto> findPageAfter(long userId, boolean byOwner, String state, PageCursor pageCursor) {
+        List<Booking> bookings = bookingRepo.findPageAfter(query(userId, byOwner, state), pageCursor);
+
+        return CursorPage.of(bookings, pageCursor.getSize(), booking -> PageCursor.encode(booking.getStart(), booking.getId()))
+                .map(BookingMapper::returnBookingDtoList);
+    }
+
+    private static BookingQuery query(long userId, boolean byOwner, String state) {
+        return BookingQuery.builder()
+                .userId(userId)
+                .byOwner(byOwner)
+                .state(BookingState.getEnumValue(state))
+                .now(LocalDateTime.now())
+                .build();
+    }
+
+    private long itemIdOf(long bookingId) {
+        return bookingRepo.findItemIdById(bookingId)
+                .orElseThrow(() -> new NotFoundException(Booking.class, "Booking id " + bookingId + " not found"));
+    }
+
+    private void reserve(Booking booking) {
+        reserve(booking.getItem().getId(), booking.getStart(), booking.getEnd());
+    }
+
+    private void reserve(long itemId, LocalDateTime start, LocalDateTime end) {
+        bookingIntervalIndex.reserve(itemId, start, end);
+        TransactionCallbacks.afterRollback(() -> bookingIntervalIndex.release(itemId, start, end));
+    }
+
+    private void checkOwnerHasItems(long userId) {
+        if (itemRepo.findByOwnerId(userId).isEmpty()) {
+            throw new ValidationException("User does not have for booking");
         }
-        return BookingMapper.returnBookingDtoList(bookings);
     }
-}
\ No newline at end of file
+}
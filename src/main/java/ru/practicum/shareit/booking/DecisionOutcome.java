@@ -0,0 +1,8 @@
+package ru.practicum.shareit.booking;
+
+public enum DecisionOutcome {
+    APPLIED,
+    NOT_FOUND,
+    INVALID,
+    CONFLICT
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * Where the booking is in time. Stored with the booking and moved forward by BookingPhaseJob.
+ */
+public enum Phase {
+    FUTURE, CURRENT, PAST;
+
+    public static Phase of(LocalDateTime start, LocalDateTime end, LocalDateTime now) {
+        if (start.isAfter(now)) {
+            return FUTURE;
+        }
+        return end.isBefore(now) ? PAST : CURRENT;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.booking;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Getter
+@RequiredArgsConstructor
+public class WaitingBooking {
+    private final Long id;
+    private final LocalDateTime start;
+}
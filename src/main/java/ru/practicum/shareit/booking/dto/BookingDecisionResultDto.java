@@ -0,0 +1,31 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.practicum.shareit.booking.DecisionOutcome;
+import ru.practicum.shareit.booking.Status;
+
+/**
+ * Outcome of one decision of a bulk approve, status is the booking status after the request.
+ */
+@Data
+@Builder
+public class BookingDecisionResultDto {
+
+    private Long bookingId;
+
+    private DecisionOutcome outcome;
+
+    private Status status;
+
+    private String message;
+
+    public static BookingDecisionResultDto of(Long bookingId, DecisionOutcome outcome, Status status, String message) {
+        return BookingDecisionResultDto.builder()
+                .bookingId(bookingId)
+                .outcome(outcome)
+                .status(status)
+                .message(message)
+                .build();
+    }
+}
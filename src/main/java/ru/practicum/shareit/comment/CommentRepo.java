@@ -1,12 +1,18 @@
 package ru.practicum.shareit.comment;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CommentRepo extends JpaRepository<Comment, Long> {
 
+    @Query("select c from Comment c where c.item.id = ?1")
     List<Comment> findByItemId(Long itemId);
+
+    @Query("select c from Comment c join fetch c.author where c.item.id in ?1")
+    List<Comment> findByItemIdIn(Collection<Long> itemIds);
 }
\ No newline at end of file
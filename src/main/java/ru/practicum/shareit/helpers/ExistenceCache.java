@@ -0,0 +1,97 @@
+package ru.practicum.shareit.helpers;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Remembers which entity ids exist, so the existence checks at the start of service methods do not
+ * hit the database every time. Unknown ids are remembered too, for a shorter time. Every eviction
+ * bumps the generation of the entity type, so a lookup that raced with a delete is not cached.
+ */
+@Component
+public class ExistenceCache {
+
+    private final int maxSize;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final Map<Class<?>, TypeCache> caches = new ConcurrentHashMap<>();
+
+    public ExistenceCache(@Value("${shareit.cache.existence.max-size:100000}") int maxSize,
+                          @Value("${shareit.cache.existence.ttl:PT10M}") Duration ttl,
+                          @Value("${shareit.cache.existence.negative-ttl:PT5S}") Duration negativeTtl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+    }
+
+    public boolean exists(Class<?> type, Long id, Predicate<Long> loader) {
+        TypeCache cache = cache(type);
+        Boolean cached = cache.ids.get(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = cache.generation();
+        boolean exists = loader.test(id);
+        cache.put(id, exists, generation, exists ? null : Instant.now().plus(negativeTtl));
+        return exists;
+    }
+
+    public void markExisting(Class<?> type, Long id) {
+        if (id != null) {
+            TypeCache cache = cache(type);
+            cache.put(id, true, cache.generation(), null);
+        }
+    }
+
+    public void evict(Class<?> type, Long id) {
+        cache(type).evict(id);
+    }
+
+    public void clear(Class<?> type) {
+        cache(type).clear();
+    }
+
+    public void clear() {
+        caches.values().forEach(TypeCache::clear);
+    }
+
+    private TypeCache cache(Class<?> type) {
+        return caches.computeIfAbsent(type, key -> new TypeCache(new LruTtlCache<>(maxSize, ttl)));
+    }
+
+    private static final class TypeCache {
+        private final LruTtlCache<Long, Boolean> ids;
+        private long generation;
+
+        private TypeCache(LruTtlCache<Long, Boolean> ids) {
+            this.ids = ids;
+        }
+
+        private synchronized long generation() {
+            return generation;
+        }
+
+        private synchronized void put(Long id, boolean exists, long seenGeneration, Instant expiresAt) {
+            if (seenGeneration == generation) {
+                ids.put(id, exists, expiresAt);
+            }
+        }
+
+        private synchronized void evict(Long id) {
+            generation++;
+            ids.evict(id);
+        }
+
+        private synchronized void clear() {
+            generation++;
+            ids.clear();
+        }
+    }
+}
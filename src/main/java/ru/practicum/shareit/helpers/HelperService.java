@@ -1,16 +1,28 @@
 package ru.practicum.shareit.helpers;
 
 import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.user.User;
 
 public interface HelperService {
 
-    void checkItem(Long itemId);
+    /**
+     * Loads the entity with a single query or throws NotFoundException. Inside a transaction the entity stays
+     * in the persistence context, so repeated calls for the same id do not go to the database again.
+     */
+    User getUser(Long userId);
 
-    void checkUser(Long userId);
+    Item getItem(Long itemId);
+
+    Booking getBooking(Long bookingId);
 
-    void checkBooking(Long booking);
+    ItemRequest getRequest(Long requestId);
 
-    void checkRequest(Long requestId);
+    void checkUser(Long userId);
 
     PageRequest checkPageSize(Integer from, Integer size);
+
+    PageCursor checkCursor(String cursor, Integer size);
 }
\ No newline at end of file
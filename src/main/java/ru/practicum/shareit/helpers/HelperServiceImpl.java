@@ -21,35 +21,37 @@ public class HelperServiceImpl implements HelperService {
     private final UserRepo userRepo;
     private final ItemRepo itemRepo;
     private final ItemRequestRepo itemRequestRepository;
+    private final ExistenceCache existenceCache;
 
     @Override
-    public void checkUser(Long userId) {
-
-        if (!userRepo.existsById(userId)) {
-            throw new NotFoundException(User.class, "User id " + userId + " not found");
-        }
+    public User getUser(Long userId) {
+        return userRepo.findById(userId)
+                .orElseThrow(() -> new NotFoundException(User.class, "User id " + userId + " not found"));
     }
 
     @Override
-    public void checkItem(Long itemId) {
-
-        if (!itemRepo.existsById(itemId)) {
-            throw new NotFoundException(Item.class, "Item id " + itemId + " not found");
-        }
+    public Item getItem(Long itemId) {
+        return itemRepo.findById(itemId)
+                .orElseThrow(() -> new NotFoundException(Item.class, "Item id " + itemId + " not found"));
     }
 
     @Override
-    public void checkBooking(Long bookingId) {
+    public Booking getBooking(Long bookingId) {
+        return bookingRepo.findById(bookingId)
+                .orElseThrow(() -> new NotFoundException(Booking.class, "Booking id " + bookingId + " not found"));
+    }
 
-        if (!bookingRepo.existsById(bookingId)) {
-            throw new NotFoundException(Booking.class, "Booking id " + bookingId + " not found");
-        }
+    @Override
+    public ItemRequest getRequest(Long requestId) {
+        return itemRequestRepository.findById(requestId)
+                .orElseThrow(() -> new NotFoundException(ItemRequest.class, "Request id " + requestId + " not found."));
     }
 
     @Override
-    public void checkRequest(Long requestId) {
-        if (!itemRequestRepository.existsById(requestId)) {
-            throw new NotFoundException(ItemRequest.class, "Request id " + requestId + " not found.");
+    public void checkUser(Long userId) {
+
+        if (!existenceCache.exists(User.class, userId, userRepo::existsById)) {
+            throw new NotFoundException(User.class, "User id " + userId + " not found");
         }
     }
 
@@ -68,4 +70,12 @@ public class HelperServiceImpl implements HelperService {
         }
         return PageRequest.of(from / size, size);
     }
+
+    @Override
+    public PageCursor checkCursor(String cursor, Integer size) {
+        if (size <= 0) {
+            throw new ValidationException("\"size\" must be greater than 0");
+        }
+        return PageCursor.decode(cursor, size);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package ru.practicum.shareit.helpers;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Outcome of one row of a bulk import, rows are numbered from 1 in the order they were sent.
+ */
+@Data
+@Builder
+public class ImportResultDto {
+
+    private int row;
+
+    private Long id;
+
+    private ImportStatus status;
+
+    private String message;
+
+    public static ImportResultDto of(int row, Long id, ImportStatus status, String message) {
+        return ImportResultDto.builder()
+                .row(row)
+                .id(id)
+                .status(status)
+                .message(message)
+                .build();
+    }
+}
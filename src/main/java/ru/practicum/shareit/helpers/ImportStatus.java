@@ -0,0 +1,8 @@
+package ru.practicum.shareit.helpers;
+
+public enum ImportStatus {
+    CREATED,
+    DUPLICATE,
+    INVALID,
+    FAILED
+}
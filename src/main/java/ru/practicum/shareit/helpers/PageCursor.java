@@ -0,0 +1,67 @@
+package ru.practicum.shareit.helpers;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.shareit.exceptions.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated list: the sort key and id of the last returned row.
+ * Clients only see it as an opaque string.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final String key;
+    private final Long id;
+    private final int size;
+
+    public static PageCursor first(int size) {
+        return new PageCursor(null, null, size);
+    }
+
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    public LocalDateTime getKeyAsDateTime() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor key " + key);
+        }
+    }
+
+    public long getKeyAsLong() {
+        try {
+            return Long.parseLong(key);
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor key " + key);
+        }
+    }
+
+    public static String encode(Object key, long id) {
+        String value = key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor, int size) {
+        if (cursor.isEmpty()) {
+            return first(size);
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            return new PageCursor(value.substring(0, separator), Long.parseLong(value.substring(separator + 1)), size);
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor " + cursor);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.shareit.helpers;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import javax.persistence.EntityManager;
+import java.util.Properties;
+
+/**
+ * Ids taken from the sequence named after the table with a _seq suffix. One nextval reserves a block of
+ * shareit.id.block-size ids (pooled-lo), so persist does not insert right away and inserts are sent as
+ * JDBC batches on flush. The sequence must be created with INCREMENT BY equal to the block size,
+ * Hibernate refuses to start otherwise.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "ru.practicum.shareit.helpers.PooledSequenceGenerator";
+    public static final String BLOCK_SIZE_SETTING = "shareit.id.block-size";
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        int blockSize = ConfigurationHelper.getInt(BLOCK_SIZE_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), DEFAULT_BLOCK_SIZE);
+
+        params.setProperty(SEQUENCE_PARAM, params.getProperty(PersistentIdentifierGenerator.TABLE) + "_seq");
+        params.setProperty(INCREMENT_PARAM, String.valueOf(blockSize));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+
+    /**
+     * Takes the next id for the entity from its generator, for rows written with plain JDBC.
+     * Has to be called inside a transaction.
+     */
+    public static long nextId(EntityManager entityManager, Object entity) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        IdentifierGenerator generator = session.getFactory().getMetamodel()
+                .entityPersister(entity.getClass())
+                .getIdentifierGenerator();
+
+        return (Long) generator.generate(session, entity);
+    }
+}
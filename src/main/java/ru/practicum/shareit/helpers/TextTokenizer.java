@@ -0,0 +1,43 @@
+package ru.practicum.shareit.helpers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+public final class TextTokenizer {
+
+    private TextTokenizer() {
+    }
+
+    public static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokens(String text) {
+        List<String> result = new ArrayList<>();
+
+        for (String token : normalize(text).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * All substrings of the normalized text with length from 1 to maxLength.
+     */
+    public static Set<String> grams(String text, int maxLength) {
+        String normalized = normalize(text);
+        Set<String> result = new LinkedHashSet<>();
+
+        for (int i = 0; i < normalized.length(); i++) {
+            for (int length = 1; length <= maxLength && i + length <= normalized.length(); length++) {
+                result.add(normalized.substring(i, i + length));
+            }
+        }
+        return result;
+    }
+}
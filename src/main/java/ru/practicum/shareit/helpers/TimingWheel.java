@@ -0,0 +1,156 @@
+package ru.practicum.shareit.helpers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Thread-safe hierarchical timing wheel. Keys are kept in buckets of tick-wide slots on the first level
+ * and of wider slots on the upper ones, so scheduling, cancelling and handing out a due key take constant
+ * time however many keys are waiting. Keys due later than the top level reaches wait in its farthest
+ * slot and are placed again when it comes round.
+ */
+public class TimingWheel<K> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final List<List<Set<K>>> levels = new ArrayList<>(LEVELS);
+    private final Map<K, Slot> slots = new HashMap<>();
+    private long currentTick;
+
+    public TimingWheel(Duration tick, Instant now) {
+        if (tick.toMillis() <= 0) {
+            throw new IllegalArgumentException("Tick must be at least one millisecond");
+        }
+        this.tickMillis = tick.toMillis();
+        this.currentTick = tickOf(now);
+        for (int level = 0; level < LEVELS; level++) {
+            List<Set<K>> buckets = new ArrayList<>(SLOTS);
+            for (int i = 0; i < SLOTS; i++) {
+                buckets.add(new LinkedHashSet<>());
+            }
+            levels.add(buckets);
+        }
+    }
+
+    /**
+     * Puts the key on the wheel or moves it if it is already there. A key whose deadline has passed is
+     * handed out by the next advance.
+     */
+    public synchronized void schedule(K key, Instant deadline) {
+        remove(key);
+        place(key, Math.max(deadlineTickOf(deadline), currentTick + 1));
+    }
+
+    public synchronized void cancel(K key) {
+        remove(key);
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    /**
+     * Turns the wheel tick by tick up to now and returns the keys that became due, earlier ticks first.
+     */
+    public synchronized List<K> advance(Instant now) {
+        List<K> due = new ArrayList<>();
+        long targetTick = tickOf(now);
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+
+            Set<K> bucket = levels.get(0).get((int) (currentTick & MASK));
+            for (K key : bucket) {
+                slots.remove(key);
+                due.add(key);
+            }
+            bucket.clear();
+        }
+        return due;
+    }
+
+    /**
+     * Moves keys of the upper slots that start at the current tick down the wheel, highest level first,
+     * so a key falling from the top can still be moved on by a level below.
+     */
+    private void cascade() {
+        int top = 0;
+        while (top < LEVELS - 1 && (currentTick & ((1L << ((top + 1) * SLOT_BITS)) - 1)) == 0) {
+            top++;
+        }
+
+        for (int level = top; level > 0; level--) {
+            Set<K> bucket = levels.get(level).get(index(currentTick, level));
+            if (bucket.isEmpty()) {
+                continue;
+            }
+
+            List<K> keys = new ArrayList<>(bucket);
+            bucket.clear();
+            for (K key : keys) {
+                place(key, slots.remove(key).deadlineTick);
+            }
+        }
+    }
+
+    private void place(K key, long deadlineTick) {
+        long delta = Math.max(deadlineTick - currentTick, 0);
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << ((level + 1) * SLOT_BITS)) {
+            level++;
+        }
+
+        int index;
+        if (delta >= 1L << (LEVELS * SLOT_BITS)) {
+            index = (index(currentTick, level) + MASK) & MASK;
+        } else {
+            index = index(deadlineTick, level);
+        }
+
+        levels.get(level).get(index).add(key);
+        slots.put(key, new Slot(level, index, deadlineTick));
+    }
+
+    private void remove(K key) {
+        Slot slot = slots.remove(key);
+        if (slot != null) {
+            levels.get(slot.level).get(slot.index).remove(key);
+        }
+    }
+
+    private long tickOf(Instant instant) {
+        return Math.floorDiv(instant.toEpochMilli(), tickMillis);
+    }
+
+    private long deadlineTickOf(Instant deadline) {
+        return Math.floorDiv(deadline.toEpochMilli() + tickMillis - 1, tickMillis);
+    }
+
+    private static int index(long tick, int level) {
+        return (int) ((tick >>> (level * SLOT_BITS)) & MASK);
+    }
+
+    private static final class Slot {
+        private final int level;
+        private final int index;
+        private final long deadlineTick;
+
+        private Slot(int level, int index, long deadlineTick) {
+            this.level = level;
+            this.index = index;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
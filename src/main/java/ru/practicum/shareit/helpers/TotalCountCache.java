@@ -0,0 +1,45 @@
+package ru.practicum.shareit.helpers;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Totals for list endpoints. The lists themselves are fetched as slices without a count query,
+ * a total is only counted when the client asks for it.
+ */
+@Component
+public class TotalCountCache {
+
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    private final LruTtlCache<String, Long> counts;
+
+    public TotalCountCache(@Value("${shareit.cache.total-count.max-size:10000}") int maxSize,
+                           @Value("${shareit.cache.total-count.ttl:PT1M}") Duration ttl) {
+        this.counts = new LruTtlCache<>(maxSize, ttl);
+    }
+
+    public long count(String key, TotalMode mode, LongSupplier exact) {
+        if (mode == TotalMode.ESTIMATE) {
+            Long cached = counts.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long count = exact.getAsLong();
+        counts.put(key, count);
+        return count;
+    }
+
+    public static <T> ResponseEntity<T> withTotal(ResponseEntity<T> response, long total) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(TOTAL_COUNT_HEADER, String.valueOf(total))
+                .body(response.getBody());
+    }
+}
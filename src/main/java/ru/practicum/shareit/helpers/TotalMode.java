@@ -0,0 +1,22 @@
+package ru.practicum.shareit.helpers;
+
+import ru.practicum.shareit.exceptions.ValidationException;
+
+import java.util.Locale;
+
+/**
+ * How a list endpoint reports the total row count: EXACT runs the count query,
+ * ESTIMATE may return a recently cached count.
+ */
+public enum TotalMode {
+    EXACT, ESTIMATE;
+
+    public static TotalMode getEnumValue(String total) {
+
+        try {
+            return TotalMode.valueOf(total.toUpperCase(Locale.ROOT));
+        } catch (Exception e) {
+            throw new ValidationException("Unknown total: " + total);
+        }
+    }
+}
@@ -1,14 +1,23 @@
 package ru.practicum.shareit.item;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.comment.CommentDto;
+import ru.practicum.shareit.helpers.ImportResultDto;
+import ru.practicum.shareit.item.dto.FreeSlotDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Validated
@@ -19,6 +28,7 @@ import java.util.List;
 public class ItemController {
 
     private final ItemService itemService;
+    private final ObjectMapper objectMapper;
 
 
     @PostMapping
@@ -29,6 +39,22 @@ public class ItemController {
     }
 
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ImportResultDto>> importItems(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                             @RequestBody List<ItemDto> itemDtos) {
+        log.info("import {} items by userId = {}", itemDtos.size(), userId);
+        return ResponseEntity.ok(itemService.importItems(userId, itemDtos.iterator()));
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<ImportResultDto>> importItems(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                             InputStream body) throws IOException {
+        log.info("import items from a stream by userId = {}", userId);
+        try (MappingIterator<ItemDto> itemDtos = objectMapper.readerFor(ItemDto.class).readValues(body)) {
+            return ResponseEntity.ok(itemService.importItems(userId, itemDtos));
+        }
+    }
+
     @PatchMapping("/{itemId}")
     public ResponseEntity<ItemDto> changeItem(@PathVariable Long itemId,
                                               @RequestHeader("X-Sharer-User-Id") Long userId,
@@ -46,19 +72,38 @@ public class ItemController {
         return ResponseEntity.ok(itemService.getItemInfoById(itemId, userId));
     }
 
+    @GetMapping("/{itemId}/availability")
+    public ResponseEntity<List<FreeSlotDto>> getAvailability(
+            @PathVariable Long itemId,
+            @RequestHeader("X-Sharer-User-Id") Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        log.info("getAvailability, itemId = {}, from = {}, to = {}", itemId, from, to);
+        return ResponseEntity.ok(itemService.getAvailability(userId, itemId, from, to));
+    }
+
     @GetMapping
     public ResponseEntity<List<ItemDto>> getAllItems(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                      @RequestParam(required = false, defaultValue = "0") Integer from,
-                                                     @RequestParam(required = false, defaultValue = "10") Integer size) {
+                                                     @RequestParam(required = false, defaultValue = "10") Integer size,
+                                                     @RequestParam(required = false) String cursor) {
         log.info("getAllItems by userid ={}", userId);
+        if (cursor != null) {
+            return itemService.getItemsByUserId(userId, cursor, size).toResponseEntity();
+        }
         return ResponseEntity.ok(itemService.getItemsByUserId(userId, from, size));
     }
 
     @GetMapping("/search")
     public ResponseEntity<List<ItemDto>> getSearchItemsByWord(@RequestParam String text,
                                                               @RequestParam(required = false, defaultValue = "0") Integer from,
-                                                              @RequestParam(required = false, defaultValue = "10") Integer size) {
+                                                              @RequestParam(required = false, defaultValue = "10") Integer size,
+                                                              @RequestParam(required = false) String cursor) {
         log.info("search by text: ", text);
+        if (cursor != null) {
+            return itemService.getItemsByKeyword(text, cursor, size).toResponseEntity();
+        }
         return ResponseEntity.ok(itemService.getItemsByKeyword(text, from, size));
     }
 
@@ -0,0 +1,124 @@
+package ru.practicum.shareit.item;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.helpers.LruTtlCache;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assembled item views returned by getItemInfoById. The owner view (with last/next bookings) and the view
+ * for everybody else are cached separately. Every invalidation bumps a per-item stamp, so a view that was
+ * loaded before a concurrent change is not put back into the cache. Only the latest maxSize stamps are kept;
+ * a view loaded before the oldest forgotten stamp is not cached, since its item may have changed since.
+ */
+@Component
+public class ItemInfoCache {
+
+    private final LruTtlCache<Key, CachedView> views;
+    private final Map<Long, Long> invalidatedAt;
+    private long clock;
+    private long clearedAt = -1;
+    private long forgottenAt = -1;
+
+    public ItemInfoCache(@Value("${shareit.cache.item-info.max-size:10000}") int maxSize,
+                         @Value("${shareit.cache.item-info.ttl:PT5M}") Duration ttl) {
+        this.views = new LruTtlCache<>(maxSize, ttl);
+        this.invalidatedAt = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                if (size() > maxSize) {
+                    forgottenAt = eldest.getValue();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public ItemDto get(long itemId, long userId) {
+        CachedView ownerView = views.get(new Key(itemId, true));
+        if (ownerView != null && ownerView.ownerId == userId) {
+            return copy(ownerView.itemDto);
+        }
+
+        CachedView otherView = views.get(new Key(itemId, false));
+        if (otherView != null && otherView.ownerId != userId) {
+            return copy(otherView.itemDto);
+        }
+        return null;
+    }
+
+    public synchronized long stamp() {
+        return clock;
+    }
+
+    /**
+     * Caches the view unless the item was invalidated after the stamp was taken. The owner view expires when
+     * its next booking starts, because at that moment the next booking becomes the last one.
+     */
+    public synchronized void put(long itemId, long ownerId, boolean ownerView, ItemDto itemDto, long stamp) {
+        if (clearedAt > stamp || forgottenAt > stamp || invalidatedAt.getOrDefault(itemId, -1L) > stamp) {
+            return;
+        }
+
+        LocalDateTime expiresAt = null;
+        if (ownerView && itemDto.getNextBooking() != null) {
+            expiresAt = itemDto.getNextBooking().getStart();
+        }
+
+        views.put(new Key(itemId, ownerView), new CachedView(ownerId, copy(itemDto)),
+                expiresAt == null ? null : expiresAt.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    public synchronized void evictItem(long itemId) {
+        invalidate(itemId);
+        views.evict(new Key(itemId, true));
+        views.evict(new Key(itemId, false));
+    }
+
+    public synchronized void evictOwnerView(long itemId) {
+        invalidate(itemId);
+        views.evict(new Key(itemId, true));
+    }
+
+    public synchronized void clear() {
+        clearedAt = ++clock;
+        invalidatedAt.clear();
+        views.clear();
+    }
+
+    private void invalidate(long itemId) {
+        invalidatedAt.remove(itemId);
+        invalidatedAt.put(itemId, ++clock);
+    }
+
+    private static ItemDto copy(ItemDto itemDto) {
+        ItemDto result = itemDto.toBuilder().build();
+        if (itemDto.getComments() != null) {
+            result.setComments(List.copyOf(itemDto.getComments()));
+        }
+        return result;
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class Key {
+        private final long itemId;
+        private final boolean ownerView;
+    }
+
+    @RequiredArgsConstructor
+    private static final class CachedView {
+        private final long ownerId;
+        private final ItemDto itemDto;
+    }
+}
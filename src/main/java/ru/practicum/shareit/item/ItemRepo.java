@@ -1,22 +1,30 @@
 package ru.practicum.shareit.item;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.item.model.Item;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ItemRepo extends JpaRepository<Item, Long> {
+public interface ItemRepo extends JpaRepository<Item, Long>, ItemRepoCustom {
+    @Query("select i from Item i where i.owner.id = ?1")
     List<Item> findByOwnerId(long userId);
 
+    @Query("select i from Item i where i.request.id = ?1")
     List<Item> findByRequestId(long requestId);
 
-    Page<Item> findByOwnerId(long userId, PageRequest pageRequest);
+    @Query("select i from Item i where i.request.id in ?1")
+    List<Item> findByRequestIdIn(Collection<Long> requestIds);
 
-    @Query("select i from Item i where upper(i.name) like upper(concat('%', ?1, '%')) or upper(i.description) like upper(concat('%', ?1, '%')) and i.available = true ")
-    List<Item> search(String text, PageRequest pageRequest);
+    @Query("select i from Item i where i.owner.id = ?1")
+    Slice<Item> findByOwnerId(long userId, PageRequest pageRequest);
+
+    @Query("select i from Item i where i.owner.id = ?1 and i.id > ?2 order by i.id asc")
+    List<Item> findByOwnerIdAndIdGreaterThanOrderByIdAsc(long userId, long id, Pageable pageable);
 }
\ No newline at end of file
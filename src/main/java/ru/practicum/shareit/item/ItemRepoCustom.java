@@ -0,0 +1,13 @@
+package ru.practicum.shareit.item;
+
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+
+public interface ItemRepoCustom {
+
+    /**
+     * Inserts the items with one JDBC batch, ids are taken from the items sequence and set on the items.
+     */
+    void insertAll(List<Item> items);
+}
@@ -0,0 +1,48 @@
+package ru.practicum.shareit.item;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.helpers.PooledSequenceGenerator;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Types;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ItemRepoCustomImpl implements ItemRepoCustom {
+
+    private static final String INSERT =
+            "insert into items (id, name, description, is_available, owner_id, request_id) values (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insertAll(List<Item> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        for (Item item : items) {
+            item.setId(PooledSequenceGenerator.nextId(entityManager, item));
+        }
+
+        entityManager.flush();
+        jdbcTemplate.batchUpdate(INSERT, items, items.size(), (statement, item) -> {
+            statement.setLong(1, item.getId());
+            statement.setString(2, item.getName());
+            statement.setString(3, item.getDescription());
+            statement.setBoolean(4, item.getAvailable());
+            statement.setLong(5, item.getOwner().getId());
+            if (item.getRequest() == null) {
+                statement.setNull(6, Types.BIGINT);
+            } else {
+                statement.setLong(6, item.getRequest().getId());
+            }
+        });
+    }
+}
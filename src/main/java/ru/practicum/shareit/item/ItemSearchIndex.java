@@ -0,0 +1,258 @@
+package ru.practicum.shareit.item;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.helpers.CursorPage;
+import ru.practicum.shareit.helpers.PageCursor;
+import ru.practicum.shareit.helpers.TextTokenizer;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory n-gram index over item name and description used by the item search.
+ * Only available items are indexed, search results are ranked by where the text was found.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final Comparator<Hit> HIT_ORDER = Comparator.comparingInt(Hit::getScore).reversed()
+            .thenComparing(Hit::getId);
+
+    private final ItemRepo itemRepo;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IndexedItem> items = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        List<Item> all = itemRepo.findAll();
+
+        lock.writeLock().lock();
+        try {
+            items.clear();
+            postings.clear();
+            for (Item item : all) {
+                put(item);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Item search index built, {} items", all.size());
+    }
+
+    public void index(Item item) {
+        if (item.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            remove(item.getId());
+            put(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ItemDto> search(String text, Pageable pageable) {
+        long limit = pageable.getOffset() + pageable.getPageSize();
+        return top(text, hit -> true, (int) Math.min(limit, Integer.MAX_VALUE)).stream()
+                .skip(pageable.getOffset())
+                .map(hit -> hit.item.toItemDto())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Keyset variant of the search: the cursor holds the score and id of the last returned hit.
+     */
+    public CursorPage<ItemDto> search(String text, PageCursor cursor) {
+        Predicate<Hit> afterCursor = hit -> true;
+        if (!cursor.isFirst()) {
+            int score = (int) cursor.getKeyAsLong();
+            long id = cursor.getId();
+            afterCursor = hit -> hit.score < score || hit.score == score && hit.getId() > id;
+        }
+
+        List<Hit> page = top(text, afterCursor, cursor.getSize() + 1);
+
+        return CursorPage.of(page, cursor.getSize(), hit -> PageCursor.encode(hit.score, hit.getId()))
+                .map(content -> content.stream().map(hit -> hit.item.toItemDto()).collect(Collectors.toList()));
+    }
+
+    /**
+     * The best limit hits accepted by the filter, best first. They are kept in a heap of limit entries
+     * with the worst on top, so only the returned hits are sorted, not all of them.
+     */
+    private List<Hit> top(String text, Predicate<Hit> filter, int limit) {
+        String query = TextTokenizer.normalize(text);
+        if (query.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, 1024) + 1, HIT_ORDER.reversed());
+
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates(query)) {
+                IndexedItem item = items.get(id);
+                int score = item.score(query);
+                if (score == 0) {
+                    continue;
+                }
+
+                Hit hit = new Hit(item, score);
+                if (!filter.test(hit)) {
+                    continue;
+                }
+                if (best.size() < limit) {
+                    best.add(hit);
+                } else if (HIT_ORDER.compare(hit, best.peek()) < 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Hit> result = new ArrayList<>(best);
+        result.sort(HIT_ORDER);
+        return result;
+    }
+
+    private Set<Long> candidates(String query) {
+        Set<Long> result = null;
+
+        for (String gram : queryGrams(query)) {
+            Set<Long> posting = postings.getOrDefault(gram, Collections.emptySet());
+            if (result == null) {
+                result = new HashSet<>(posting);
+            } else {
+                result.retainAll(posting);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? Collections.emptySet() : result;
+    }
+
+    private static Set<String> queryGrams(String query) {
+        int length = Math.min(GRAM_LENGTH, query.length());
+        Set<String> result = new HashSet<>();
+
+        for (int i = 0; i + length <= query.length(); i++) {
+            result.add(query.substring(i, i + length));
+        }
+        return result;
+    }
+
+    private void put(Item item) {
+        if (!Boolean.TRUE.equals(item.getAvailable())) {
+            return;
+        }
+
+        IndexedItem indexed = new IndexedItem(item);
+        items.put(indexed.getId(), indexed);
+
+        Set<String> grams = TextTokenizer.grams(indexed.name, GRAM_LENGTH);
+        grams.addAll(TextTokenizer.grams(indexed.description, GRAM_LENGTH));
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(indexed.getId());
+        }
+    }
+
+    private void remove(Long itemId) {
+        IndexedItem indexed = items.remove(itemId);
+        if (indexed == null) {
+            return;
+        }
+
+        Set<String> grams = TextTokenizer.grams(indexed.name, GRAM_LENGTH);
+        grams.addAll(TextTokenizer.grams(indexed.description, GRAM_LENGTH));
+        for (String gram : grams) {
+            Set<Long> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(itemId);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static final class Hit {
+        private final IndexedItem item;
+        private final int score;
+
+        private Long getId() {
+            return item.getId();
+        }
+    }
+
+    private static final class IndexedItem {
+        private final ItemDto item;
+        private final String name;
+        private final String description;
+        private final List<String> nameTokens;
+        private final List<String> descriptionTokens;
+
+        private IndexedItem(Item item) {
+            this.item = ItemMapper.returnItemDto(item);
+            this.name = TextTokenizer.normalize(item.getName());
+            this.description = TextTokenizer.normalize(item.getDescription());
+            this.nameTokens = TextTokenizer.tokens(item.getName());
+            this.descriptionTokens = TextTokenizer.tokens(item.getDescription());
+        }
+
+        private Long getId() {
+            return item.getId();
+        }
+
+        private int score(String query) {
+            int result = 0;
+
+            if (name.contains(query)) {
+                result += nameTokens.contains(query) ? 4 : 3;
+            }
+            if (description.contains(query)) {
+                result += descriptionTokens.contains(query) ? 2 : 1;
+            }
+            return result;
+        }
+
+        private ItemDto toItemDto() {
+            return ItemDto.builder()
+                    .id(item.getId())
+                    .name(item.getName())
+                    .description(item.getDescription())
+                    .available(item.getAvailable())
+                    .requestId(item.getRequestId())
+                    .build();
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package ru.practicum.shareit.item;
 
 import ru.practicum.shareit.comment.CommentDto;
+import ru.practicum.shareit.helpers.CursorPage;
+import ru.practicum.shareit.helpers.ImportResultDto;
+import ru.practicum.shareit.item.dto.FreeSlotDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 
 public interface ItemService {
@@ -11,12 +16,20 @@ public interface ItemService {
 
     ItemDto addNewItem(long userId, ItemDto itemDto);
 
+    List<ImportResultDto> importItems(long userId, Iterator<ItemDto> itemDtos);
+
     ItemDto changeItem(ItemDto itemDto, long userId, long itemId);
 
     List<ItemDto> getItemsByUserId(long userId, Integer from, Integer size);
 
     List<ItemDto> getItemsByKeyword(String text, Integer from, Integer size);
 
+    CursorPage<ItemDto> getItemsByUserId(long userId, String cursor, Integer size);
+
+    CursorPage<ItemDto> getItemsByKeyword(String text, String cursor, Integer size);
+
     CommentDto postComment(long userId, long itemId, CommentDto commentDto);
 
+    List<FreeSlotDto> getAvailability(long userId, long itemId, LocalDateTime from, LocalDateTime to);
+
 }
\ No newline at end of file
@@ -1,10 +1,14 @@
 package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
 import ru.practicum.shareit.booking.BookingMapper;
 import ru.practicum.shareit.booking.BookingRepo;
 import ru.practicum.shareit.booking.Status;
@@ -14,36 +18,67 @@ import ru.practicum.shareit.comment.CommentMapper;
 import ru.practicum.shareit.comment.CommentRepo;
 import ru.practicum.shareit.exceptions.NotFoundException;
 import ru.practicum.shareit.exceptions.ValidationException;
+import ru.practicum.shareit.helpers.CursorPage;
 import ru.practicum.shareit.helpers.HelperService;
+import ru.practicum.shareit.helpers.ImportResultDto;
+import ru.practicum.shareit.helpers.ImportStatus;
+import ru.practicum.shareit.helpers.PageCursor;
+import ru.practicum.shareit.helpers.TransactionCallbacks;
+import ru.practicum.shareit.item.dto.FreeSlotDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.request.ItemRequestRepo;
+import ru.practicum.shareit.request.RequestMatcher;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.UserRepo;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class ItemServiceImpl implements ItemService {
 
+    private static final int AVAILABILITY_DAYS = 30;
+    private static final int IMPORT_BATCH_SIZE = 500;
+
     private final ItemRepo itemRepo;
-    private final UserRepo userRepo;
     private final BookingRepo bookingRepo;
     private final CommentRepo commentRepo;
     private final HelperService helperService;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemInfoCache itemInfoCache;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final RequestMatcher requestMatcher;
     private final ItemRequestRepo itemRequestRepo;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
     @Override
     public ItemDto getItemInfoById(long itemId, long userId) {
-        helperService.checkItem(itemId);
-        Item item = itemRepo.findById(itemId).get();
+        ItemDto cached = itemInfoCache.get(itemId, userId);
+        if (cached != null) {
+            helperService.checkUser(userId);
+            return cached;
+        }
+
+        long stamp = itemInfoCache.stamp();
+        Item item = helperService.getItem(itemId);
 
         ItemDto itemDto = ItemMapper.returnItemDto(item);
 
@@ -75,42 +110,141 @@ public class ItemServiceImpl implements ItemService {
             itemDto.setComments(Collections.emptyList());
         }
 
+        itemInfoCache.put(itemId, item.getOwner().getId(), item.getOwner().getId() == userId, itemDto, stamp);
         return itemDto;
     }
 
     @Transactional
     @Override
     public ItemDto addNewItem(long userId, ItemDto itemDto) {
-        helperService.checkUser(userId);
-        User user = userRepo.findById(userId).get();
+        User user = helperService.getUser(userId);
         Item item = ItemMapper.returnItem(itemDto, user);
         if (itemDto.getRequestId() != null) {
-            helperService.checkRequest(itemDto.getRequestId());
-            item.setRequest(itemRequestRepo.findById(itemDto.getRequestId()).get());
+            item.setRequest(helperService.getRequest(itemDto.getRequestId()));
         }
         itemRepo.save(item);
+        TransactionCallbacks.afterCommit(() -> {
+            itemSearchIndex.index(item);
+            if (item.getRequest() != null) {
+                requestMatcher.closeRequest(item.getRequest().getId());
+            }
+            requestMatcher.submit(item);
+        });
         return ItemMapper.returnItemDto(item);
     }
 
+    /**
+     * Resolves the owner once and inserts the items with one JDBC batch per IMPORT_BATCH_SIZE rows.
+     * The requests referenced by a batch are loaded with one query. Rows are read from the iterator as
+     * the import goes, outside of any transaction; every batch commits on its own, and a batch the
+     * database refuses is reported as FAILED row by row without undoing the earlier ones.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public List<ImportResultDto> importItems(long userId, Iterator<ItemDto> itemDtos) {
+        User owner = helperService.getUser(userId);
+        List<ImportResultDto> results = new ArrayList<>();
+        List<ItemDto> batch = new ArrayList<>();
+
+        while (itemDtos.hasNext()) {
+            batch.add(itemDtos.next());
+            if (batch.size() == IMPORT_BATCH_SIZE || !itemDtos.hasNext()) {
+                results.addAll(importBatch(owner, batch, results.size() + 1));
+                batch.clear();
+            }
+        }
+        return results;
+    }
+
+    private List<ImportResultDto> importBatch(User owner, List<ItemDto> batch, int firstRow) {
+        ImportResultDto[] results = new ImportResultDto[batch.size()];
+        Map<Integer, ItemDto> candidates = new LinkedHashMap<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            ItemDto itemDto = batch.get(i);
+            if (itemDto == null) {
+                results[i] = ImportResultDto.of(firstRow + i, null, ImportStatus.INVALID, "row is empty");
+                continue;
+            }
+            Set<ConstraintViolation<ItemDto>> violations = validator.validate(itemDto);
+            if (!violations.isEmpty()) {
+                results[i] = ImportResultDto.of(firstRow + i, null, ImportStatus.INVALID, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                continue;
+            }
+            candidates.put(i, itemDto);
+        }
+
+        Map<Integer, Item> items = new LinkedHashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBatch(owner, candidates, items, results, firstRow));
+        } catch (DataIntegrityViolationException e) {
+            items.clear();
+            candidates.forEach((i, itemDto) -> {
+                if (results[i] == null) {
+                    results[i] = ImportResultDto.of(firstRow + i, null, ImportStatus.FAILED,
+                            "rows " + firstRow + " to " + (firstRow + batch.size() - 1) + " were not saved");
+                }
+            });
+        }
+
+        items.forEach((i, item) -> results[i] = ImportResultDto.of(firstRow + i, item.getId(), ImportStatus.CREATED, null));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Marks the candidates referring to a missing request as INVALID and inserts the others.
+     */
+    private void insertBatch(User owner, Map<Integer, ItemDto> candidates, Map<Integer, Item> items,
+                             ImportResultDto[] results, int firstRow) {
+        Set<Long> requestIds = candidates.values().stream()
+                .map(ItemDto::getRequestId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, ItemRequest> requests = requestIds.isEmpty() ? Map.of() : itemRequestRepo.findAllById(requestIds).stream()
+                .collect(Collectors.toMap(ItemRequest::getId, Function.identity()));
+
+        candidates.forEach((i, itemDto) -> {
+            if (itemDto.getRequestId() != null && !requests.containsKey(itemDto.getRequestId())) {
+                results[i] = ImportResultDto.of(firstRow + i, null, ImportStatus.INVALID,
+                        "request id " + itemDto.getRequestId() + " not found");
+                return;
+            }
+
+            Item item = ItemMapper.returnItem(itemDto, owner);
+            item.setId(null);
+            item.setRequest(itemDto.getRequestId() == null ? null : requests.get(itemDto.getRequestId()));
+            items.put(i, item);
+        });
+
+        List<Item> created = new ArrayList<>(items.values());
+        itemRepo.insertAll(created);
+        TransactionCallbacks.afterCommit(() -> {
+            for (Item item : created) {
+                itemSearchIndex.index(item);
+                if (item.getRequest() != null) {
+                    requestMatcher.closeRequest(item.getRequest().getId());
+                }
+                requestMatcher.submit(item);
+            }
+        });
+    }
+
     @Transactional
     @Override
     public ItemDto changeItem(ItemDto itemDto, long itemId, long userId) {
 
-        helperService.checkUser(userId);
-        User user = userRepo.findById(userId).get();
-
-        helperService.checkItem(itemId);
+        User user = helperService.getUser(userId);
         Item item = ItemMapper.returnItem(itemDto, user);
 
+        Item newItem = helperService.getItem(itemId);
 
-        item.setId(itemId);
-
-        if (!itemRepo.findByOwnerId(userId).contains(item)) {
+        if (newItem.getOwner().getId() != userId) {
             throw new NotFoundException(Item.class, "the item was not found with the user id " + userId);
         }
 
-        Item newItem = itemRepo.findById(item.getId()).get();
-
         if (item.getName() != null) {
             newItem.setName(item.getName());
         }
@@ -124,6 +258,11 @@ public class ItemServiceImpl implements ItemService {
         }
 
         itemRepo.save(newItem);
+        TransactionCallbacks.afterCommit(() -> {
+            itemSearchIndex.index(newItem);
+            itemInfoCache.evictItem(itemId);
+            requestMatcher.submit(newItem);
+        });
 
         return ItemMapper.returnItemDto(newItem);
     }
@@ -133,61 +272,76 @@ public class ItemServiceImpl implements ItemService {
     public List<ItemDto> getItemsByUserId(long userId, Integer from, Integer size) {
         helperService.checkUser(userId);
         PageRequest pageRequest = helperService.checkPageSize(from, size);
-        List<ItemDto> resultList = new ArrayList<>();
 
-        for (ItemDto itemDto : ItemMapper.returnItemDtoList(itemRepo.findByOwnerId(userId, pageRequest))) {
+        List<ItemDto> resultList = ItemMapper.returnItemDtoList(itemRepo.findByOwnerId(userId, pageRequest));
 
-            Optional<Booking> lastBooking = bookingRepo.findFirstByItemIdAndStatusAndStartBeforeOrderByStartDesc(itemDto.getId(), Status.APPROVED, LocalDateTime.now());
-            Optional<Booking> nextBooking = bookingRepo.findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(itemDto.getId(), Status.APPROVED, LocalDateTime.now());
-
-            if (lastBooking.isPresent()) {
-                itemDto.setLastBooking(BookingMapper.toBookingShortDto(lastBooking.get()));
-            } else {
-                itemDto.setLastBooking(null);
-            }
+        return addBookingsAndComments(resultList);
+    }
 
-            if (nextBooking.isPresent()) {
-                itemDto.setNextBooking(BookingMapper.toBookingShortDto(nextBooking.get()));
-            } else {
-                itemDto.setNextBooking(null);
-            }
+    @Transactional
+    @Override
+    public CursorPage<ItemDto> getItemsByUserId(long userId, String cursor, Integer size) {
+        helperService.checkUser(userId);
+        PageCursor pageCursor = helperService.checkCursor(cursor, size);
+        long afterId = pageCursor.isFirst() ? 0 : pageCursor.getId();
 
-            resultList.add(itemDto);
-        }
+        List<Item> items = itemRepo.findByOwnerIdAndIdGreaterThanOrderByIdAsc(userId, afterId, PageRequest.of(0, size + 1));
 
-        for (ItemDto itemDto : resultList) {
+        return CursorPage.of(items, size, item -> PageCursor.encode(item.getId(), item.getId()))
+                .map(page -> addBookingsAndComments(ItemMapper.returnItemDtoList(page)));
+    }
 
-            List<Comment> commentList = commentRepo.findByItemId(itemDto.getId());
+    private List<ItemDto> addBookingsAndComments(List<ItemDto> itemDtos) {
+        if (itemDtos.isEmpty()) {
+            return itemDtos;
+        }
 
-            if (!commentList.isEmpty()) {
-                itemDto.setComments(CommentMapper.returnCommentDtoList(commentList));
-            } else {
-                itemDto.setComments(Collections.emptyList());
-            }
+        List<Long> itemIds = itemDtos.stream()
+                .map(ItemDto::getId)
+                .collect(Collectors.toList());
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<Long, Booking> lastBookings = bookingRepo.findLastBookingsByItemIds(itemIds, Status.APPROVED, now).stream()
+                .collect(Collectors.toMap(booking -> booking.getItem().getId(), Function.identity(), (b1, b2) -> b1));
+        Map<Long, Booking> nextBookings = bookingRepo.findNextBookingsByItemIds(itemIds, Status.APPROVED, now).stream()
+                .collect(Collectors.toMap(booking -> booking.getItem().getId(), Function.identity(), (b1, b2) -> b1));
+        Map<Long, List<Comment>> comments = commentRepo.findByItemIdIn(itemIds).stream()
+                .collect(Collectors.groupingBy(comment -> comment.getItem().getId()));
+
+        for (ItemDto itemDto : itemDtos) {
+            Booking lastBooking = lastBookings.get(itemDto.getId());
+            Booking nextBooking = nextBookings.get(itemDto.getId());
+
+            itemDto.setLastBooking(lastBooking == null ? null : BookingMapper.toBookingShortDto(lastBooking));
+            itemDto.setNextBooking(nextBooking == null ? null : BookingMapper.toBookingShortDto(nextBooking));
+            itemDto.setComments(CommentMapper.returnCommentDtoList(
+                    comments.getOrDefault(itemDto.getId(), Collections.emptyList())));
         }
 
-        return resultList;
+        return itemDtos;
     }
 
-    @Transactional
     @Override
     public List<ItemDto> getItemsByKeyword(String text, Integer from, Integer size) {
         PageRequest pageRequest = helperService.checkPageSize(from, size);
         if (text.equals("")) {
             return Collections.emptyList();
         } else {
-            return ItemMapper.returnItemDtoList(itemRepo.search(text, pageRequest));
+            return itemSearchIndex.search(text, pageRequest);
         }
     }
 
+    @Override
+    public CursorPage<ItemDto> getItemsByKeyword(String text, String cursor, Integer size) {
+        PageCursor pageCursor = helperService.checkCursor(cursor, size);
+        return itemSearchIndex.search(text, pageCursor);
+    }
+
     @Transactional
     @Override
     public CommentDto postComment(long userId, long itemId, CommentDto commentDto) {
-        helperService.checkUser(userId);
-        User user = userRepo.findById(userId).get();
-
-        helperService.checkItem(itemId);
-        Item item = itemRepo.findById(itemId).get();
+        User user = helperService.getUser(userId);
+        Item item = helperService.getItem(itemId);
 
         LocalDateTime dateTime = LocalDateTime.now();
 
@@ -199,7 +353,27 @@ public class ItemServiceImpl implements ItemService {
 
         Comment comment = CommentMapper.returnComment(commentDto, item, user, dateTime);
         commentRepo.save(comment);
+        TransactionCallbacks.afterCommit(() -> itemInfoCache.evictItem(itemId));
 
         return CommentMapper.returnCommentDto(comment);
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<FreeSlotDto> getAvailability(long userId, long itemId, LocalDateTime from, LocalDateTime to) {
+
+        helperService.checkUser(userId);
+        Item item = helperService.getItem(itemId);
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = from == null || from.isBefore(now) ? now : from;
+        LocalDateTime end = to == null ? start.plusDays(AVAILABILITY_DAYS) : to;
+        if (!end.isAfter(start)) {
+            throw new ValidationException("\"to\" must be later than \"from\"");
+        }
+
+        if (!item.getAvailable()) {
+            return Collections.emptyList();
+        }
+        return bookingIntervalIndex.freeSlots(itemId, start, end);
+    }
+}
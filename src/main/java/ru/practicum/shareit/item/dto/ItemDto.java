@@ -8,11 +8,12 @@ import ru.practicum.shareit.comment.CommentDto;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
 import java.util.List;
 
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 
 public class ItemDto {
 
@@ -20,10 +21,12 @@ public class ItemDto {
 
     @NotNull
     @NotBlank
+    @Size(max = 200)
     private String name;
 
     @NotNull
     @NotBlank
+    @Size(max = 2000)
     private String description;
 
     @NotNull
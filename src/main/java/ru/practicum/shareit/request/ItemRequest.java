@@ -1,6 +1,8 @@
 package ru.practicum.shareit.request;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import ru.practicum.shareit.helpers.PooledSequenceGenerator;
 import ru.practicum.shareit.user.User;
 
 import javax.persistence.*;
@@ -15,7 +17,8 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class ItemRequest {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "requests_seq")
+    @GenericGenerator(name = "requests_seq", strategy = PooledSequenceGenerator.STRATEGY)
     @EqualsAndHashCode.Include
     private Long id;
 
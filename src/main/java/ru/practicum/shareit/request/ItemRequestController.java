@@ -5,6 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.helpers.TotalCountCache;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import javax.validation.Valid;
@@ -37,10 +39,18 @@ public class ItemRequestController {
     @GetMapping("/all")
     public ResponseEntity<List<ItemRequestDto>> getAllRequests(@RequestHeader("X-Sharer-User-Id") Long userId,
                                                                @RequestParam(defaultValue = "0", required = false) Integer from,
-                                                               @RequestParam(defaultValue = "10", required = false) Integer size) {
+                                                               @RequestParam(defaultValue = "10", required = false) Integer size,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(required = false) String total) {
 
         log.info("Get all requests by All users ");
-        return ResponseEntity.ok(itemRequestService.getAllRequests(userId, from, size));
+        ResponseEntity<List<ItemRequestDto>> response = cursor != null
+                ? itemRequestService.getAllRequests(userId, cursor, size).toResponseEntity()
+                : ResponseEntity.ok(itemRequestService.getAllRequests(userId, from, size));
+        if (total != null) {
+            return TotalCountCache.withTotal(response, itemRequestService.countAllRequests(userId, total));
+        }
+        return response;
     }
 
     @GetMapping("/{requestId}")
@@ -50,4 +60,12 @@ public class ItemRequestController {
         log.info("Get request {}", requestId);
         return ResponseEntity.ok(itemRequestService.getRequestById(userId, requestId));
     }
+
+    @GetMapping("/{requestId}/matches")
+    public ResponseEntity<List<ItemDto>> getMatches(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                    @PathVariable("requestId") Long requestId) {
+
+        log.info("Get matching items for request {}", requestId);
+        return ResponseEntity.ok(itemRequestService.getMatches(userId, requestId));
+    }
 }
\ No newline at end of file
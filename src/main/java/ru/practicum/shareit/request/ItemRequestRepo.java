@@ -1,14 +1,35 @@
 package ru.practicum.shareit.request;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemRequestRepo extends JpaRepository<ItemRequest, Long> {
 
+    @Query("select r from ItemRequest r where r.requester.id = ?1 order by r.created asc")
     List<ItemRequest> findByRequesterIdOrderByCreatedAsc(long requesterId);
 
-    Page<ItemRequest> findByIdIsNotOrderByCreatedAsc(long userId, PageRequest pageRequest);
+    @Query("select r from ItemRequest r where r.requester.id <> ?1 order by r.created desc, r.id desc")
+    Slice<ItemRequest> findByRequesterIdNotOrderByCreatedDesc(long userId, PageRequest pageRequest);
+
+    @Query("select count(r) from ItemRequest r where r.requester.id <> ?1")
+    long countByRequesterIdNot(long userId);
+
+    @Query("select r from ItemRequest r where r.requester.id <> ?1 order by r.created desc, r.id desc")
+    List<ItemRequest> findByRequesterIdNotOrderByCreatedDescIdDesc(long userId, Pageable pageable);
+
+    @Query("select r from ItemRequest r where r.requester.id <> ?1 " +
+            "and (r.created < ?2 or (r.created = ?2 and r.id < ?3)) order by r.created desc, r.id desc")
+    List<ItemRequest> findOthersBefore(long userId, LocalDateTime created, long id, Pageable pageable);
+
+    @Query("select r from ItemRequest r order by r.created desc, r.id desc")
+    List<ItemRequest> findNewest(Pageable pageable);
+
+    @Query("select r from ItemRequest r where not exists (select i.id from Item i where i.request.id = r.id)")
+    List<ItemRequest> findOpen();
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package ru.practicum.shareit.request;
 
+import ru.practicum.shareit.helpers.CursorPage;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import java.util.List;
@@ -11,7 +13,13 @@ public interface ItemRequestService {
 
     List<ItemRequestDto> getAllRequests(Long userId, Integer from, Integer size);
 
+    CursorPage<ItemRequestDto> getAllRequests(Long userId, String cursor, Integer size);
+
+    long countAllRequests(Long userId, String total);
+
     ItemRequestDto getRequestById(long userId, long requestId);
 
+    List<ItemDto> getMatches(long userId, long requestId);
+
     ItemRequestDto addItemsToRequest(ItemRequest itemRequest);
 }
\ No newline at end of file
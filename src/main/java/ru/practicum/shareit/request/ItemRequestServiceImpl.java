@@ -1,20 +1,28 @@
 package ru.practicum.shareit.request;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.exceptions.NotFoundException;
+import ru.practicum.shareit.helpers.CursorPage;
 import ru.practicum.shareit.helpers.HelperService;
+import ru.practicum.shareit.helpers.PageCursor;
+import ru.practicum.shareit.helpers.TotalCountCache;
+import ru.practicum.shareit.helpers.TotalMode;
+import ru.practicum.shareit.helpers.TransactionCallbacks;
 import ru.practicum.shareit.item.ItemMapper;
 import ru.practicum.shareit.item.ItemRepo;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.UserRepo;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
@@ -22,21 +30,24 @@ import java.util.List;
 public class ItemRequestServiceImpl implements ItemRequestService {
 
     private final ItemRepo itemRepo;
-    private final UserRepo userRepo;
     private final ItemRequestRepo itemRequestRepository;
     private final HelperService helperService;
+    private final TotalCountCache totalCountCache;
+    private final RequestFeed requestFeed;
+    private final RequestMatcher requestMatcher;
+    private final RequestMatchRepo requestMatchRepo;
 
     @Transactional
     @Override
     public ItemRequestDto addRequest(ItemRequestDto itemRequestDto, long userId) {
 
-        helperService.checkUser(userId);
-
-        User user = userRepo.findById(userId).get();
+        User user = helperService.getUser(userId);
 
-        ItemRequest itemRequest = RequestMapper.returnItemRequest(itemRequestDto, user);
-
-        itemRequest = itemRequestRepository.save(itemRequest);
+        ItemRequest itemRequest = itemRequestRepository.save(RequestMapper.returnItemRequest(itemRequestDto, user));
+        TransactionCallbacks.afterCommit(() -> {
+            requestFeed.add(itemRequest);
+            requestMatcher.addRequest(itemRequest);
+        });
 
         return RequestMapper.returnItemRequestDto(itemRequest);
     }
@@ -48,11 +59,7 @@ public class ItemRequestServiceImpl implements ItemRequestService {
 
         List<ItemRequest> itemRequests = itemRequestRepository.findByRequesterIdOrderByCreatedAsc(userId);
 
-        List<ItemRequestDto> result = new ArrayList<>();
-        for (ItemRequest itemRequest : itemRequests) {
-            result.add(addItemsToRequest(itemRequest));
-        }
-        return result;
+        return addItemsToRequests(itemRequests);
     }
 
     @Override
@@ -60,26 +67,64 @@ public class ItemRequestServiceImpl implements ItemRequestService {
 
         PageRequest pageRequest = helperService.checkPageSize(from, size);
 
-        Page<ItemRequest> itemRequests = itemRequestRepository.findByIdIsNotOrderByCreatedAsc(userId, pageRequest);
+        Slice<ItemRequest> itemRequests = itemRequestRepository.findByRequesterIdNotOrderByCreatedDesc(userId, pageRequest);
+
+        return addItemsToRequests(itemRequests.getContent());
+    }
+
+    @Override
+    public CursorPage<ItemRequestDto> getAllRequests(Long userId, String cursor, Integer size) {
+
+        PageCursor pageCursor = helperService.checkCursor(cursor, size);
 
-        List<ItemRequestDto> result = new ArrayList<>();
-        for (ItemRequest itemRequest : itemRequests) {
-            result.add(addItemsToRequest(itemRequest));
+        List<ItemRequestDto> fromFeed = requestFeed.othersBefore(userId, pageCursor, size + 1);
+        if (fromFeed != null) {
+            return CursorPage.of(fromFeed, size, itemRequestDto -> PageCursor.encode(itemRequestDto.getCreated(), itemRequestDto.getId()))
+                    .map(this::addItems);
         }
-        return result;
+
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<ItemRequest> itemRequests = pageCursor.isFirst()
+                ? itemRequestRepository.findByRequesterIdNotOrderByCreatedDescIdDesc(userId, limit)
+                : itemRequestRepository.findOthersBefore(userId, pageCursor.getKeyAsDateTime(), pageCursor.getId(), limit);
+
+        return CursorPage.of(itemRequests, size, itemRequest -> PageCursor.encode(itemRequest.getCreated(), itemRequest.getId()))
+                .map(this::addItemsToRequests);
+    }
+
+    @Override
+    public long countAllRequests(Long userId, String total) {
+
+        TotalMode totalMode = TotalMode.getEnumValue(total);
+
+        return totalCountCache.count("requests:others:" + userId, totalMode,
+                () -> itemRequestRepository.countByRequesterIdNot(userId));
     }
 
     @Override
     public ItemRequestDto getRequestById(long userId, long requestId) {
 
         helperService.checkUser(userId);
-        helperService.checkRequest(requestId);
 
-        ItemRequest itemRequest = itemRequestRepository.findById(requestId).get();
+        ItemRequest itemRequest = helperService.getRequest(requestId);
 
         return addItemsToRequest(itemRequest);
     }
 
+    @Override
+    public List<ItemDto> getMatches(long userId, long requestId) {
+
+        helperService.checkUser(userId);
+        ItemRequest itemRequest = helperService.getRequest(requestId);
+        if (itemRequest.getRequester().getId() != userId) {
+            throw new NotFoundException(ItemRequest.class, "Only requester " + userId + " can see matches of request " + requestId);
+        }
+
+        return requestMatchRepo.findByRequestId(requestId).stream()
+                .map(requestMatch -> ItemMapper.returnItemDto(requestMatch.getItem()))
+                .collect(Collectors.toList());
+    }
+
     @Override
     public ItemRequestDto addItemsToRequest(ItemRequest itemRequest) {
 
@@ -89,4 +134,28 @@ public class ItemRequestServiceImpl implements ItemRequestService {
 
         return itemRequestDto;
     }
+
+    private List<ItemRequestDto> addItemsToRequests(List<ItemRequest> itemRequests) {
+        return addItems(itemRequests.stream()
+                .map(RequestMapper::returnItemRequestDto)
+                .collect(Collectors.toList()));
+    }
+
+    private List<ItemRequestDto> addItems(List<ItemRequestDto> itemRequestDtos) {
+        if (itemRequestDtos.isEmpty()) {
+            return itemRequestDtos;
+        }
+
+        List<Long> requestIds = itemRequestDtos.stream()
+                .map(ItemRequestDto::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<Item>> items = itemRepo.findByRequestIdIn(requestIds).stream()
+                .collect(Collectors.groupingBy(item -> item.getRequest().getId()));
+
+        for (ItemRequestDto itemRequestDto : itemRequestDtos) {
+            itemRequestDto.setItems(ItemMapper.returnItemDtoList(
+                    items.getOrDefault(itemRequestDto.getId(), Collections.emptyList())));
+        }
+        return itemRequestDtos;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package ru.practicum.shareit.request;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.helpers.PageCursor;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The newest requests kept in memory, so the first pages of the /requests/all feed are answered without
+ * a query. A page is served from memory only when the head is known to hold all of it, otherwise the
+ * caller falls back to the database.
+ */
+@Component
+public class RequestFeed {
+
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator.comparing((Entry entry) -> entry.created)
+            .thenComparing(entry -> entry.id)
+            .reversed();
+
+    private final ItemRequestRepo itemRequestRepo;
+    private final int size;
+    private List<Entry> head;
+    private boolean complete;
+
+    public RequestFeed(ItemRequestRepo itemRequestRepo,
+                       @Value("${shareit.cache.request-feed.size:200}") int size) {
+        this.itemRequestRepo = itemRequestRepo;
+        this.size = size;
+    }
+
+    /**
+     * Requests of other users older than the cursor, newest first, at most limit of them.
+     * Returns null if the head does not reach far enough.
+     */
+    public synchronized List<ItemRequestDto> othersBefore(long userId, PageCursor cursor, int limit) {
+        load();
+
+        List<ItemRequestDto> result = new ArrayList<>();
+        for (Entry entry : head) {
+            if (!cursor.isFirst() && !entry.isBefore(cursor.getKeyAsDateTime(), cursor.getId())) {
+                continue;
+            }
+            if (entry.requesterId != userId) {
+                result.add(entry.toItemRequestDto());
+                if (result.size() == limit) {
+                    return result;
+                }
+            }
+        }
+        return complete ? result : null;
+    }
+
+    public synchronized void add(ItemRequest itemRequest) {
+        if (head == null) {
+            return;
+        }
+
+        Entry entry = new Entry(itemRequest);
+        head.removeIf(cached -> cached.id == entry.id);
+        int index = Collections.binarySearch(head, entry, NEWEST_FIRST);
+        head.add(index < 0 ? -index - 1 : index, entry);
+        if (head.size() > size) {
+            head.remove(head.size() - 1);
+            complete = false;
+        }
+    }
+
+    public synchronized void clear() {
+        head = null;
+    }
+
+    private void load() {
+        if (head != null) {
+            return;
+        }
+
+        List<ItemRequest> newest = itemRequestRepo.findNewest(PageRequest.of(0, size));
+        head = new ArrayList<>();
+        for (ItemRequest itemRequest : newest) {
+            head.add(new Entry(itemRequest));
+        }
+        complete = newest.size() < size;
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final long requesterId;
+        private final String description;
+        private final LocalDateTime created;
+
+        private Entry(ItemRequest itemRequest) {
+            this.id = itemRequest.getId();
+            this.requesterId = itemRequest.getRequester().getId();
+            this.description = itemRequest.getDescription();
+            this.created = itemRequest.getCreated();
+        }
+
+        private boolean isBefore(LocalDateTime created, long id) {
+            return this.created.isBefore(created) || this.created.isEqual(created) && this.id < id;
+        }
+
+        private ItemRequestDto toItemRequestDto() {
+            return ItemRequestDto.builder()
+                    .id(id)
+                    .description(description)
+                    .created(created)
+                    .items(Collections.emptyList())
+                    .build();
+        }
+    }
+}
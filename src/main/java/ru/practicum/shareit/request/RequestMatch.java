@@ -0,0 +1,38 @@
+package ru.practicum.shareit.request;
+
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import ru.practicum.shareit.helpers.PooledSequenceGenerator;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Builder
+@Table(name = "request_matches")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class RequestMatch {
+    @Id
+    @GeneratedValue(generator = "request_matches_seq")
+    @GenericGenerator(name = "request_matches_seq", strategy = PooledSequenceGenerator.STRATEGY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "request_id", nullable = false)
+    private ItemRequest request;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "item_id", nullable = false)
+    private Item item;
+
+    @Column(name = "score", nullable = false)
+    private double score;
+
+    @Column(name = "created", nullable = false)
+    private LocalDateTime created;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.request;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface RequestMatchRepo extends JpaRepository<RequestMatch, Long> {
+
+    @Query("select m from RequestMatch m join fetch m.item where m.request.id = ?1 order by m.score desc, m.id asc")
+    List<RequestMatch> findByRequestId(long requestId);
+
+    @Modifying
+    @Query("delete from RequestMatch m where m.item.id = ?1")
+    void deleteByItemId(long itemId);
+}
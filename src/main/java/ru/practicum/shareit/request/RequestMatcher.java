@@ -0,0 +1,252 @@
+package ru.practicum.shareit.request;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.helpers.TextTokenizer;
+import ru.practicum.shareit.item.ItemRepo;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted token index over the descriptions of open requests, i.e. requests without an item yet.
+ * Every added or changed item is scored against it in the background (tf-idf cosine) and the best
+ * requests are stored as suggested matches. Only requests sharing a token with the item are scored.
+ */
+@Slf4j
+@Component
+public class RequestMatcher {
+
+    private static final int MIN_TOKEN_LENGTH = 3;
+
+    private final ItemRequestRepo itemRequestRepo;
+    private final RequestMatchRepo requestMatchRepo;
+    private final ItemRepo itemRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxMatches;
+    private final double minScore;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, OpenRequest> requests = new HashMap<>();
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+
+    public RequestMatcher(ItemRequestRepo itemRequestRepo,
+                          RequestMatchRepo requestMatchRepo,
+                          ItemRepo itemRepo,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${shareit.request-matcher.max-matches:20}") int maxMatches,
+                          @Value("${shareit.request-matcher.min-score:0.2}") double minScore) {
+        this.itemRequestRepo = itemRequestRepo;
+        this.requestMatchRepo = requestMatchRepo;
+        this.itemRepo = itemRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxMatches = maxMatches;
+        this.minScore = minScore;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        List<ItemRequest> open = itemRequestRepo.findOpen();
+
+        lock.writeLock().lock();
+        try {
+            requests.clear();
+            postings.clear();
+            for (ItemRequest itemRequest : open) {
+                put(itemRequest);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Request matcher built, {} open requests", open.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void addRequest(ItemRequest itemRequest) {
+        lock.writeLock().lock();
+        try {
+            remove(itemRequest.getId());
+            put(itemRequest);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The request got its item, so it is not offered to other items any more.
+     */
+    public void closeRequest(long requestId) {
+        lock.writeLock().lock();
+        try {
+            remove(requestId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Scores the item off the calling thread and replaces its stored matches.
+     */
+    public void submit(Item item) {
+        long itemId = item.getId();
+        long ownerId = item.getOwner().getId();
+        boolean available = Boolean.TRUE.equals(item.getAvailable());
+        String text = item.getName() + " " + item.getDescription();
+
+        executor.execute(() -> {
+            try {
+                Map<Long, Double> scores = available ? score(ownerId, text) : Map.of();
+                saveMatches(itemId, scores);
+            } catch (RuntimeException e) {
+                log.warn("Matching item {} against requests failed", itemId, e);
+            }
+        });
+    }
+
+    /**
+     * Open requests of other users similar to the text, best first.
+     */
+    public Map<Long, Double> score(long ownerId, String text) {
+        Map<String, Integer> itemTerms = terms(TextTokenizer.tokens(text));
+        Map<Long, Double> dotProducts = new HashMap<>();
+        double itemNorm = 0;
+
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Integer> term : itemTerms.entrySet()) {
+                Map<Long, Integer> posting = postings.get(term.getKey());
+                if (posting == null) {
+                    continue;
+                }
+                double idf = idf(posting.size());
+                double itemWeight = term.getValue() * idf;
+                itemNorm += itemWeight * itemWeight;
+                for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                    dotProducts.merge(entry.getKey(), itemWeight * entry.getValue() * idf, Double::sum);
+                }
+            }
+
+            List<Map.Entry<Long, Double>> found = new ArrayList<>();
+            for (Map.Entry<Long, Double> entry : dotProducts.entrySet()) {
+                OpenRequest request = requests.get(entry.getKey());
+                if (request.requesterId == ownerId) {
+                    continue;
+                }
+                double score = entry.getValue() / Math.sqrt(itemNorm * norm(request));
+                if (score >= minScore) {
+                    found.add(Map.entry(entry.getKey(), score));
+                }
+            }
+
+            found.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            Map<Long, Double> result = new LinkedHashMap<>();
+            for (Map.Entry<Long, Double> entry : found.subList(0, Math.min(maxMatches, found.size()))) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void saveMatches(long itemId, Map<Long, Double> scores) {
+        LocalDateTime now = LocalDateTime.now();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            requestMatchRepo.deleteByItemId(itemId);
+            List<RequestMatch> matches = new ArrayList<>();
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                matches.add(RequestMatch.builder()
+                        .request(itemRequestRepo.getReferenceById(entry.getKey()))
+                        .item(itemRepo.getReferenceById(itemId))
+                        .score(entry.getValue())
+                        .created(now)
+                        .build());
+            }
+            requestMatchRepo.saveAll(matches);
+        });
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (double) requests.size() / documentFrequency);
+    }
+
+    private double norm(OpenRequest request) {
+        double result = 0;
+        for (Map.Entry<String, Integer> term : request.terms.entrySet()) {
+            double weight = term.getValue() * idf(postings.get(term.getKey()).size());
+            result += weight * weight;
+        }
+        return result;
+    }
+
+    private void put(ItemRequest itemRequest) {
+        OpenRequest request = new OpenRequest(itemRequest.getRequester().getId(),
+                terms(TextTokenizer.tokens(itemRequest.getDescription())));
+        if (request.terms.isEmpty()) {
+            return;
+        }
+
+        requests.put(itemRequest.getId(), request);
+        for (Map.Entry<String, Integer> term : request.terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(itemRequest.getId(), term.getValue());
+        }
+    }
+
+    private void remove(Long requestId) {
+        OpenRequest request = requests.remove(requestId);
+        if (request == null) {
+            return;
+        }
+
+        for (String term : request.terms.keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(requestId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static Map<String, Integer> terms(List<String> tokens) {
+        Map<String, Integer> result = new HashMap<>();
+        for (String token : tokens) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                result.merge(token, 1, Integer::sum);
+            }
+        }
+        return result;
+    }
+
+    private static final class OpenRequest {
+        private final long requesterId;
+        private final Map<String, Integer> terms;
+
+        private OpenRequest(long requesterId, Map<String, Integer> terms) {
+            this.requesterId = requesterId;
+            this.terms = terms;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package ru.practicum.shareit.user;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import ru.practicum.shareit.helpers.PooledSequenceGenerator;
 
 import javax.persistence.*;
+import java.util.Locale;
 
 @Data
 @AllArgsConstructor
@@ -14,13 +17,31 @@ import javax.persistence.*;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "users_seq")
+    @GenericGenerator(name = "users_seq", strategy = PooledSequenceGenerator.STRATEGY)
     @EqualsAndHashCode.Include
     private Long id;
 
     @Column(name = "name", nullable = false)
     private String name;
 
-    @Column(name = "email", unique = true)
+    @Column(name = "email")
     private String email;
+
+    /**
+     * Unique key of case-insensitive email lookups. Always derived by lowerEmail, never by SQL LOWER,
+     * so the stored keys and the looked up ones agree on every letter whatever the database does.
+     */
+    @Column(name = "email_lower", nullable = false)
+    private String emailLower;
+
+    public static String lowerEmail(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void initEmailLower() {
+        emailLower = lowerEmail(email);
+    }
 }
\ No newline at end of file
@@ -1,12 +1,21 @@
 package ru.practicum.shareit.user;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.helpers.ImportResultDto;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Slf4j
@@ -17,6 +26,7 @@ import java.util.List;
 public class UserController {
 
     private final UserServiceImpl userService;
+    private final ObjectMapper objectMapper;
 
 
     @PostMapping()
@@ -26,9 +36,41 @@ public class UserController {
     }
 
     @GetMapping()
-    public List<UserDto> findAll() {
-        log.info("find all users:");
-        return userService.findAll();
+    public List<UserDto> findAll(@RequestParam(required = false) Integer from,
+                                 @RequestParam(required = false) Integer size) {
+        log.info("find all users, from = {}, size = {}", from, size);
+        if (from == null && size == null) {
+            return userService.findAll();
+        }
+        return userService.findAll(from == null ? 0 : from, size == null ? 10 : size);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("stream all users");
+        StreamingResponseBody body = outputStream -> userService.streamAll(userDto -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(userDto));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<ImportResultDto> importUsers(@RequestBody List<UserDto> userDtos) {
+        log.info("import {} users", userDtos.size());
+        return userService.importUsers(userDtos.iterator());
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public List<ImportResultDto> importUsers(InputStream body) throws IOException {
+        log.info("import users from a stream");
+        try (MappingIterator<UserDto> userDtos = objectMapper.readerFor(UserDto.class).readValues(body)) {
+            return userService.importUsers(userDtos);
+        }
     }
 
     @PatchMapping("/{userId}")
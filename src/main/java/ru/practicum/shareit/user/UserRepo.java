@@ -1,11 +1,33 @@
 package ru.practicum.shareit.user;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface UserRepo extends JpaRepository<User, Long> {
-    List<User> findByEmail(String email);
+public interface UserRepo extends JpaRepository<User, Long>, UserRepoCustom {
+    boolean existsByEmailLower(String emailLower);
+
+    boolean existsByEmailLowerAndIdNot(String emailLower, long id);
+
+    @Query("select u.emailLower from User u where u.emailLower in ?1")
+    List<String> findLowerEmailsIn(Collection<String> emailLowers);
+
+    @Query("select u from User u order by u.id")
+    Slice<User> findPage(Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAll();
 }
\ No newline at end of file
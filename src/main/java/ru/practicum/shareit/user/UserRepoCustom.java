@@ -0,0 +1,11 @@
+package ru.practicum.shareit.user;
+
+import java.util.List;
+
+public interface UserRepoCustom {
+
+    /**
+     * Inserts the users with one JDBC batch, ids are taken from the users sequence and set on the users.
+     */
+    void insertAll(List<User> users);
+}
@@ -0,0 +1,39 @@
+package ru.practicum.shareit.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.helpers.PooledSequenceGenerator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserRepoCustomImpl implements UserRepoCustom {
+
+    private static final String INSERT = "insert into users (id, name, email, email_lower) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insertAll(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+
+        for (User user : users) {
+            user.setId(PooledSequenceGenerator.nextId(entityManager, user));
+        }
+
+        entityManager.flush();
+        jdbcTemplate.batchUpdate(INSERT, users, users.size(), (statement, user) -> {
+            statement.setLong(1, user.getId());
+            statement.setString(2, user.getName());
+            statement.setString(3, user.getEmail());
+            statement.setString(4, User.lowerEmail(user.getEmail()));
+        });
+    }
+}
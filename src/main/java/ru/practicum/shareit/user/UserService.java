@@ -1,8 +1,12 @@
 package ru.practicum.shareit.user;
 
+import ru.practicum.shareit.helpers.ImportResultDto;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     UserDto create(UserDto userDto);
@@ -11,6 +15,12 @@ public interface UserService {
 
     Collection<UserDto> findAll();
 
+    List<UserDto> findAll(Integer from, Integer size);
+
+    void streamAll(Consumer<UserDto> action);
+
+    List<ImportResultDto> importUsers(Iterator<UserDto> userDtos);
+
     UserDto getUserById(long userId);
 
     void deleteUserById(long userId);
@@ -1,50 +1,224 @@
 package ru.practicum.shareit.user;
 
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.BookingExpiry;
+import ru.practicum.shareit.booking.BookingInterval;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
+import ru.practicum.shareit.booking.BookingRepo;
+import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.exceptions.EmailNotExistException;
+import ru.practicum.shareit.helpers.ExistenceCache;
 import ru.practicum.shareit.helpers.HelperService;
+import ru.practicum.shareit.helpers.ImportResultDto;
+import ru.practicum.shareit.helpers.ImportStatus;
+import ru.practicum.shareit.helpers.TransactionCallbacks;
+import ru.practicum.shareit.item.ItemInfoCache;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional(readOnly = true)
 @AllArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    private static final int IMPORT_BATCH_SIZE = 500;
+    private static final int MAX_IMPORT_ATTEMPTS = 3;
+    private static final String EMAIL_CONSTRAINT = "uq_user_email_lower";
+
     private final UserRepo userRepo;
+    private final BookingRepo bookingRepo;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final BookingExpiry bookingExpiry;
     private final HelperService helperService;
+    private final ItemInfoCache itemInfoCache;
+    private final ExistenceCache existenceCache;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
     @Override
     public UserDto create(UserDto userDto) {
         User user = UserMapper.returnUser(userDto);
-        userRepo.save(user);
+
+        if (userRepo.existsByEmailLower(User.lowerEmail(user.getEmail()))) {
+            throw new EmailNotExistException("there is already a user with an email " + user.getEmail());
+        }
+        try {
+            userRepo.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (!isEmailTaken(e)) {
+                throw e;
+            }
+            throw new EmailNotExistException("there is already a user with an email " + user.getEmail());
+        }
+        TransactionCallbacks.afterCommit(() -> existenceCache.markExisting(User.class, user.getId()));
         return UserMapper.returnUserDto(user);
     }
 
+    /**
+     * Validates the rows and drops repeated emails in memory, then inserts the rest with one JDBC batch
+     * per IMPORT_BATCH_SIZE rows. Rows are read from the iterator as the import goes, outside of any
+     * transaction; every batch commits on its own, so a failed batch does not undo the earlier ones
+     * and its rows are reported as FAILED.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public List<ImportResultDto> importUsers(Iterator<UserDto> userDtos) {
+        List<ImportResultDto> results = new ArrayList<>();
+        Set<String> emails = new HashSet<>();
+        List<UserDto> batch = new ArrayList<>();
+
+        while (userDtos.hasNext()) {
+            batch.add(userDtos.next());
+            if (batch.size() == IMPORT_BATCH_SIZE || !userDtos.hasNext()) {
+                results.addAll(importBatch(batch, results.size() + 1, emails));
+                batch.clear();
+            }
+        }
+        return results;
+    }
+
+    private List<ImportResultDto> importBatch(List<UserDto> batch, int firstRow, Set<String> emails) {
+        ImportResultDto[] results = new ImportResultDto[batch.size()];
+        Map<Integer, User> candidates = new LinkedHashMap<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i) == null) {
+                results[i] = ImportResultDto.of(firstRow + i, null, ImportStatus.INVALID, "row is empty");
+                continue;
+            }
+            Set<ConstraintViolation<UserDto>> violations = validator.validate(batch.get(i));
+            if (!violations.isEmpty()) {
+                results[i] = ImportResultDto.of(firstRow + i, null, ImportStatus.INVALID, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                continue;
+            }
+
+            User user = UserMapper.returnUser(batch.get(i));
+            user.setId(null);
+            user.setEmailLower(User.lowerEmail(user.getEmail()));
+            if (!emails.add(user.getEmailLower())) {
+                results[i] = ImportResultDto.of(firstRow + i, null, ImportStatus.DUPLICATE,
+                        "email " + user.getEmail() + " repeats an earlier row");
+                continue;
+            }
+            candidates.put(i, user);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertBatch(candidates, results, firstRow));
+                break;
+            } catch (DataIntegrityViolationException e) {
+                candidates.forEach((i, user) -> user.setId(null));
+                if (!isEmailTaken(e) || attempt == MAX_IMPORT_ATTEMPTS) {
+                    String message = isEmailTaken(e)
+                            ? "users with the emails of rows " + firstRow + " to " + (firstRow + batch.size() - 1)
+                            + " keep being created concurrently"
+                            : "rows " + firstRow + " to " + (firstRow + batch.size() - 1) + " were not saved";
+                    candidates.forEach((i, user) -> {
+                        if (results[i] == null) {
+                            results[i] = ImportResultDto.of(firstRow + i, null, ImportStatus.FAILED, message);
+                        }
+                    });
+                    break;
+                }
+            }
+        }
+
+        candidates.forEach((i, user) -> {
+            if (results[i] == null) {
+                results[i] = ImportResultDto.of(firstRow + i, user.getId(), ImportStatus.CREATED, null);
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Marks the candidates whose email is taken by now as DUPLICATE and inserts the others. A user created
+     * concurrently after the check makes the insert fail, then the batch is checked and inserted again.
+     */
+    private void insertBatch(Map<Integer, User> candidates, ImportResultDto[] results, int firstRow) {
+        List<String> candidateEmails = candidates.entrySet().stream()
+                .filter(candidate -> results[candidate.getKey()] == null)
+                .map(candidate -> candidate.getValue().getEmailLower())
+                .collect(Collectors.toList());
+        Set<String> existing = candidateEmails.isEmpty() ? Set.of() : new HashSet<>(userRepo.findLowerEmailsIn(candidateEmails));
+
+        List<User> users = new ArrayList<>();
+        candidates.forEach((i, user) -> {
+            if (results[i] != null) {
+                return;
+            }
+            if (existing.contains(user.getEmailLower())) {
+                results[i] = ImportResultDto.of(firstRow + i, null, ImportStatus.DUPLICATE,
+                        "there is already a user with an email " + user.getEmail());
+            } else {
+                users.add(user);
+            }
+        });
+
+        userRepo.insertAll(users);
+        List<Long> ids = users.stream().map(User::getId).collect(Collectors.toList());
+        TransactionCallbacks.afterCommit(() -> ids.forEach(id -> existenceCache.markExisting(User.class, id)));
+    }
+
+    /**
+     * Tells the email unique constraint apart from the other ones, only it is worth checking and retrying.
+     */
+    private static boolean isEmailTaken(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().toLowerCase(Locale.ROOT).contains(EMAIL_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Transactional
     @Override
     public UserDto updateUser(UserDto userDto, long userId) {
         User user = UserMapper.returnUser(userDto);
         user.setId(userId);
-        helperService.checkUser(userId);
-
-        User newUser = userRepo.findById(userId).get();
+        User newUser = helperService.getUser(userId);
 
         if (user.getName() != null) {
             newUser.setName(user.getName());
+            TransactionCallbacks.afterCommit(itemInfoCache::clear);
         }
 
         if (user.getEmail() != null) {
-            List<User> findEmail = userRepo.findByEmail(user.getEmail());
+            String email = user.getEmail();
 
-            if (!findEmail.isEmpty() && findEmail.get(0).getId() != userId) {
-                throw new EmailNotExistException("there is already a user with an email " + user.getEmail());
+            if (userRepo.existsByEmailLowerAndIdNot(User.lowerEmail(email), userId)) {
+                throw new EmailNotExistException("there is already a user with an email " + email);
             }
-            newUser.setEmail(user.getEmail());
+            newUser.setEmail(email);
         }
 
         userRepo.save(newUser);
@@ -58,17 +232,52 @@ public class UserServiceImpl implements UserService {
         return UserMapper.returnUserDtoList(userRepo.findAll());
     }
 
+    @Override
+    public List<UserDto> findAll(Integer from, Integer size) {
+        PageRequest pageRequest = helperService.checkPageSize(from, size);
+        return UserMapper.returnUserDtoList(userRepo.findPage(pageRequest));
+    }
+
+    /**
+     * Passes users to the action one by one while the result set is read, every user is detached right away,
+     * so memory does not grow with the number of users.
+     */
+    @Override
+    public void streamAll(Consumer<UserDto> action) {
+        try (Stream<User> users = userRepo.streamAll()) {
+            users.forEach(user -> {
+                action.accept(UserMapper.returnUserDto(user));
+                entityManager.detach(user);
+            });
+        }
+    }
+
     @Transactional(readOnly = true)
     @Override
     public UserDto getUserById(long userId) {
-        helperService.checkUser(userId);
-        return UserMapper.returnUserDto(userRepo.findById(userId).get());
+        return UserMapper.returnUserDto(helperService.getUser(userId));
     }
 
+    /**
+     * The database deletes the bookings of the user and of their items along with them, so their taken
+     * intervals are read first and released once the deletion commits.
+     */
     @Transactional
     @Override
     public void deleteUserById(long userId) {
         helperService.checkUser(userId);
+        List<BookingInterval> intervals = bookingRepo.findIntervalsOfUser(userId,
+                List.of(Status.WAITING, Status.APPROVED), LocalDateTime.now());
         userRepo.deleteById(userId);
+        TransactionCallbacks.afterCommit(() -> {
+            existenceCache.evict(User.class, userId);
+            itemInfoCache.clear();
+            for (BookingInterval interval : intervals) {
+                bookingIntervalIndex.release(interval.getItemId(), interval.getStart(), interval.getEnd());
+                if (interval.getStatus() == Status.WAITING) {
+                    bookingExpiry.cancel(interval.getId());
+                }
+            }
+        });
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import lombok.Data;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
 @Data
 @Builder
@@ -15,9 +16,11 @@ public class UserDto {
     private Long id;
     @NotNull
     @NotBlank
+    @Size(max = 300)
     private String name;
     @NotNull
     @NotBlank
     @Email
+    @Size(max = 300)
     private String email;
 }
\ No newline at end of file
@@ -1,17 +1,31 @@
-DROP TABLE IF EXISTS bookings, items, requests, users, comments CASCADE;
+DROP TABLE IF EXISTS bookings, items, requests, users, comments, request_matches CASCADE;
+DROP SEQUENCE IF EXISTS users_seq;
+DROP SEQUENCE IF EXISTS requests_seq;
+DROP SEQUENCE IF EXISTS items_seq;
+DROP SEQUENCE IF EXISTS bookings_seq;
+DROP SEQUENCE IF EXISTS comments_seq;
+DROP SEQUENCE IF EXISTS request_matches_seq;
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS requests_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comments_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS request_matches_seq START WITH 1 INCREMENT BY 50;
 
 CREATE TABLE IF NOT EXISTS users
 (
-    id    BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    id    BIGINT                                  NOT NULL,
     name  VARCHAR(300)                            NOT NULL,
     email VARCHAR(300)                            NOT NULL,
+    email_lower VARCHAR(300)                      NOT NULL,
     CONSTRAINT pk_user PRIMARY KEY (id),
-    CONSTRAINT uq_user_email UNIQUE (email)
+    CONSTRAINT uq_user_email_lower UNIQUE (email_lower)
 );
 
 CREATE TABLE IF NOT EXISTS requests
 (
-    id           BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    id           BIGINT                                  NOT NULL,
     description  VARCHAR(2000)                           NOT NULL,
     requester_id BIGINT                                  NOT NULL,
     created      TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
@@ -19,9 +33,12 @@ CREATE TABLE IF NOT EXISTS requests
     CONSTRAINT fk_request_requester_id FOREIGN KEY (requester_id) REFERENCES users (id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_requests_requester_created ON requests (requester_id, created);
+CREATE INDEX IF NOT EXISTS idx_requests_created ON requests (created DESC, id DESC);
+
 CREATE TABLE IF NOT EXISTS items
 (
-    id           BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    id           BIGINT                                  NOT NULL,
     name         VARCHAR(200)                            NOT NULL,
     description  VARCHAR(2000)                           NOT NULL,
     is_available BOOLEAN                                 NOT NULL DEFAULT FALSE,
@@ -32,23 +49,54 @@ CREATE TABLE IF NOT EXISTS items
     CONSTRAINT fk_item_request_id FOREIGN KEY (request_id) REFERENCES requests (id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_items_owner ON items (owner_id, id);
+CREATE INDEX IF NOT EXISTS idx_items_request ON items (request_id);
+
 CREATE TABLE IF NOT EXISTS bookings
 (
-    id         BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    id         BIGINT                                  NOT NULL,
     start_date TIMESTAMP WITHOUT TIME ZONE,
     end_date   TIMESTAMP WITHOUT TIME ZONE,
     item_id    BIGINT REFERENCES items (id) ON DELETE CASCADE,
     booker_id  BIGINT REFERENCES users (id) ON DELETE CASCADE,
-    status     VARCHAR(128)
+    status     VARCHAR(128),
+    phase      VARCHAR(16)                             NOT NULL DEFAULT 'FUTURE',
+    version    BIGINT                                  NOT NULL DEFAULT 0,
+    CONSTRAINT pk_booking PRIMARY KEY (id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_start ON bookings (booker_id, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_status_start ON bookings (booker_id, status, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_start ON bookings (item_id, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_status_start ON bookings (item_id, status, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_status_end ON bookings (status, end_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_phase_start ON bookings (booker_id, phase, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_phase_start ON bookings (item_id, phase, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_phase_start ON bookings (phase, start_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_phase_end ON bookings (phase, end_date);
+
 
 CREATE TABLE IF NOT EXISTS comments
 (
-    id        BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    id        BIGINT                                  NOT NULL,
     text      VARCHAR(4096)                           NOT NULL,
     item_id   BIGINT REFERENCES items (id) ON DELETE CASCADE,
     author_id BIGINT REFERENCES users (id) ON DELETE CASCADE,
     created   TIMESTAMP WITHOUT TIME ZONE,
     CONSTRAINT pk_comment PRIMARY KEY (id)
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS idx_comments_item ON comments (item_id);
+
+CREATE TABLE IF NOT EXISTS request_matches
+(
+    id         BIGINT                                  NOT NULL,
+    request_id BIGINT REFERENCES requests (id) ON DELETE CASCADE,
+    item_id    BIGINT REFERENCES items (id) ON DELETE CASCADE,
+    score      DOUBLE PRECISION                        NOT NULL,
+    created    TIMESTAMP WITHOUT TIME ZONE             NOT NULL,
+    CONSTRAINT pk_request_match PRIMARY KEY (id),
+    CONSTRAINT uq_request_match UNIQUE (request_id, item_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_request_matches_item ON request_matches (item_id);
@@ -0,0 +1,169 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.BookingQuery;
+import ru.practicum.shareit.booking.BookingRepo;
+import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.Phase;
+import ru.practicum.shareit.booking.Status;
+import ru.practicum.shareit.comment.CommentRepo;
+import ru.practicum.shareit.helpers.PageCursor;
+import ru.practicum.shareit.item.ItemRepo;
+import ru.practicum.shareit.request.ItemRequestRepo;
+import ru.practicum.shareit.request.RequestMatchRepo;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every repository query, takes the SQL Hibernate sent and checks with EXPLAIN that H2 reads it through an index.
+ * Queries meant to read a whole table are listed in FULL_SCANS.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=ru.practicum.shareit.SqlRecorder")
+class QueryPlanTest {
+
+    /**
+     * RequestMatcher loads every open request once at startup, each is checked against items through idx_items_request.
+     */
+    private static final Set<String> FULL_SCANS = Set.of("ItemRequestRepo.findOpen");
+
+    @Autowired
+    BookingRepo bookingRepo;
+
+    @Autowired
+    ItemRepo itemRepo;
+
+    @Autowired
+    CommentRepo commentRepo;
+
+    @Autowired
+    ItemRequestRepo itemRequestRepo;
+
+    @Autowired
+    UserRepo userRepo;
+
+    @Autowired
+    RequestMatchRepo requestMatchRepo;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    LocalDateTime now;
+
+    @BeforeEach
+    void beforeEach() {
+        now = LocalDateTime.now();
+        SqlRecorder.drain();
+    }
+
+    @Test
+    void repositoryQueriesDoNotScanTables() {
+        PageRequest page = PageRequest.of(1, 10);
+        PageCursor cursor = PageCursor.decode(PageCursor.encode(now, 10L), 10);
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+
+        for (BookingState state : BookingState.values()) {
+            for (boolean byOwner : new boolean[]{false, true}) {
+                BookingQuery query = BookingQuery.builder().userId(1L).byOwner(byOwner).state(state).now(now).build();
+                String name = "BookingRepo " + (byOwner ? "owner " : "booker ") + state;
+                queries.put(name + " slice", () -> bookingRepo.findByQuery(query, page));
+                queries.put(name + " keyset", () -> bookingRepo.findPageAfter(query, cursor));
+                queries.put(name + " count", () -> bookingRepo.countByQuery(query));
+            }
+        }
+        queries.put("BookingRepo.findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc",
+                () -> bookingRepo.findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(1L, Status.APPROVED, now));
+        queries.put("BookingRepo.findFirstByItemIdAndStatusAndStartBeforeOrderByStartDesc",
+                () -> bookingRepo.findFirstByItemIdAndStatusAndStartBeforeOrderByStartDesc(1L, Status.APPROVED, now));
+        queries.put("BookingRepo.findFirstByItemIdAndBookerIdAndStatusAndEndBefore",
+                () -> bookingRepo.findFirstByItemIdAndBookerIdAndStatusAndEndBefore(1L, 2L, Status.APPROVED, now));
+        queries.put("BookingRepo.findLastBookingsByItemIds",
+                () -> bookingRepo.findLastBookingsByItemIds(List.of(1L, 2L), Status.APPROVED, now));
+        queries.put("BookingRepo.findNextBookingsByItemIds",
+                () -> bookingRepo.findNextBookingsByItemIds(List.of(1L, 2L), Status.APPROVED, now));
+        queries.put("BookingRepo.findItemIdById", () -> bookingRepo.findItemIdById(1L));
+        queries.put("BookingRepo.findByIdInAndOwnerId",
+                () -> bookingRepo.findByIdInAndOwnerId(List.of(1L, 2L), 1L));
+        queries.put("BookingRepo.updatePhaseOfEnded",
+                () -> bookingRepo.updatePhaseOfEnded(List.of(Phase.FUTURE, Phase.CURRENT), Phase.PAST, now));
+        queries.put("BookingRepo.updatePhaseOfStarted",
+                () -> bookingRepo.updatePhaseOfStarted(Phase.FUTURE, Phase.CURRENT, now));
+        queries.put("BookingRepo.findIntervals",
+                () -> bookingRepo.findIntervals(List.of(Status.WAITING, Status.APPROVED), now));
+        queries.put("BookingRepo.findIntervalsOfUser",
+                () -> bookingRepo.findIntervalsOfUser(1L, List.of(Status.WAITING, Status.APPROVED), now));
+        queries.put("BookingRepo.findWaitingBookings", () -> bookingRepo.findWaitingBookings(Status.WAITING));
+        queries.put("BookingRepo.findByIdInAndStatus",
+                () -> bookingRepo.findByIdInAndStatus(List.of(1L, 2L), Status.WAITING));
+        queries.put("ItemRepo.findByOwnerId", () -> itemRepo.findByOwnerId(1L));
+        queries.put("ItemRepo.findByOwnerId page", () -> itemRepo.findByOwnerId(1L, page));
+        queries.put("ItemRepo.findByOwnerIdAndIdGreaterThanOrderByIdAsc",
+                () -> itemRepo.findByOwnerIdAndIdGreaterThanOrderByIdAsc(1L, 10L, page));
+        queries.put("ItemRepo.findByRequestId", () -> itemRepo.findByRequestId(1L));
+        queries.put("ItemRepo.findByRequestIdIn", () -> itemRepo.findByRequestIdIn(List.of(1L, 2L)));
+        queries.put("CommentRepo.findByItemId", () -> commentRepo.findByItemId(1L));
+        queries.put("CommentRepo.findByItemIdIn", () -> commentRepo.findByItemIdIn(List.of(1L, 2L)));
+        queries.put("ItemRequestRepo.findByRequesterIdOrderByCreatedAsc",
+                () -> itemRequestRepo.findByRequesterIdOrderByCreatedAsc(1L));
+        queries.put("ItemRequestRepo.findByRequesterIdNotOrderByCreatedDesc",
+                () -> itemRequestRepo.findByRequesterIdNotOrderByCreatedDesc(1L, page));
+        queries.put("ItemRequestRepo.countByRequesterIdNot", () -> itemRequestRepo.countByRequesterIdNot(1L));
+        queries.put("ItemRequestRepo.findByRequesterIdNotOrderByCreatedDescIdDesc",
+                () -> itemRequestRepo.findByRequesterIdNotOrderByCreatedDescIdDesc(1L, page));
+        queries.put("ItemRequestRepo.findOthersBefore",
+                () -> itemRequestRepo.findOthersBefore(1L, now, 10L, page));
+        queries.put("ItemRequestRepo.findNewest", () -> itemRequestRepo.findNewest(page));
+        queries.put("ItemRequestRepo.findOpen", () -> itemRequestRepo.findOpen());
+        queries.put("UserRepo.findPage", () -> userRepo.findPage(page));
+        queries.put("UserRepo.streamAll", () -> {
+            try (Stream<User> users = userRepo.streamAll()) {
+                users.forEach(user -> { });
+            }
+        });
+        queries.put("UserRepo.findLowerEmailsIn", () -> userRepo.findLowerEmailsIn(List.of("user@mail.ru", "other@mail.ru")));
+        queries.put("RequestMatchRepo.findByRequestId", () -> requestMatchRepo.findByRequestId(1L));
+        queries.put("RequestMatchRepo.deleteByItemId", () -> requestMatchRepo.deleteByItemId(1L));
+        queries.put("UserRepo.existsByEmailLower", () -> userRepo.existsByEmailLower("user@mail.ru"));
+        queries.put("UserRepo.existsByEmailLowerAndIdNot", () -> userRepo.existsByEmailLowerAndIdNot("user@mail.ru", 1L));
+
+        List<String> scans = new ArrayList<>();
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            entityManager.clear();
+            query.getValue().run();
+
+            List<String> statements = SqlRecorder.drain();
+            assertFalse(statements.isEmpty(), query.getKey());
+            for (String sql : statements) {
+                String plan = explain(sql);
+                if (plan.contains("tableScan") && !FULL_SCANS.contains(query.getKey())) {
+                    scans.add(query.getKey() + ":\n" + plan);
+                }
+            }
+        }
+        assertTrue(scans.isEmpty(), "Queries scan tables:\n" + String.join("\n\n", scans));
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + sql),
+                rs -> rs.next() ? rs.getString(1) : "");
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SqlRecorder implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+
+    public static List<String> drain() {
+        synchronized (STATEMENTS) {
+            List<String> result = new ArrayList<>(STATEMENTS);
+            STATEMENTS.clear();
+            return result;
+        }
+    }
+}
@@ -8,8 +8,12 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.helpers.CursorPage;
+import ru.practicum.shareit.helpers.TotalCountCache;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.user.dto.UserDto;
 
@@ -107,6 +111,28 @@ public class BookingControllerTest {
         verify(bookingService, times(1)).approveBooking(1L, 1L, true);
     }
 
+    @Test
+    void approveBookings() throws Exception {
+        List<BookingDecisionDto> decisions = List.of(
+                BookingDecisionDto.builder().bookingId(1L).approved(true).build(),
+                BookingDecisionDto.builder().bookingId(2L).approved(false).build());
+        when(bookingService.approveBookings(anyLong(), anyList())).thenReturn(List.of(
+                BookingDecisionResultDto.of(1L, DecisionOutcome.APPLIED, Status.APPROVED, null),
+                BookingDecisionResultDto.of(2L, DecisionOutcome.NOT_FOUND, null, "not found")));
+
+        mvc.perform(patch("/bookings/bulk")
+                        .content(mapper.writeValueAsString(decisions))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].outcome", is("APPLIED")))
+                .andExpect(jsonPath("$[0].status", is("APPROVED")))
+                .andExpect(jsonPath("$[1].outcome", is("NOT_FOUND")));
+
+        verify(bookingService, times(1)).approveBookings(1L, decisions);
+    }
+
     @Test
     void getBookingById() throws Exception {
         when(bookingService.getBookingById(anyLong(), anyLong())).thenReturn(bookingOutputDto1);
@@ -155,6 +181,39 @@ public class BookingControllerTest {
         verify(bookingService, times(1)).getAllBookingsForAllItemsByOwnerId(1L, "ALL", 0, 10);
     }
 
+    @Test
+    void getAllBookingsByBookerIdWithCursor() throws Exception {
+        when(bookingService.getAllBookingsByBookerId(anyLong(), anyString(), anyString(), anyInt()))
+                .thenReturn(new CursorPage<>(List.of(bookingOutputDto1), "next"));
+
+        mvc.perform(get("/bookings")
+                .param("state", "ALL")
+                .param("cursor", "")
+                .param("size", String.valueOf(1))
+                .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "next"))
+                .andExpect(content().json(mapper.writeValueAsString(List.of(bookingOutputDto1))));
+
+        verify(bookingService, times(1)).getAllBookingsByBookerId(1L, "ALL", "", 1);
+    }
+
+    @Test
+    void getAllBookingsForAllItemsByOwnerIdWithTotal() throws Exception {
+        when(bookingService.getAllBookingsForAllItemsByOwnerId(anyLong(), anyString(), anyInt(), anyInt())).thenReturn(List.of(bookingOutputDto1));
+        when(bookingService.countAllBookingsForAllItemsByOwnerId(anyLong(), anyString(), anyString())).thenReturn(25L);
+
+        mvc.perform(get("/bookings/owner")
+                .param("state", "ALL")
+                .param("total", "exact")
+                .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TotalCountCache.TOTAL_COUNT_HEADER, "25"))
+                .andExpect(content().json(mapper.writeValueAsString(List.of(bookingOutputDto1))));
+
+        verify(bookingService, times(1)).countAllBookingsForAllItemsByOwnerId(1L, "ALL", "exact");
+    }
+
     @Test
     void addBooking() throws Exception {
         when(bookingService.addBooking(any(BookingDto.class), anyLong())).thenReturn(bookingOutputDto1);
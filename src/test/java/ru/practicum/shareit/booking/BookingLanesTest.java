@@ -0,0 +1,144 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.exceptions.ConflictException;
+import ru.practicum.shareit.helpers.HelperService;
+import ru.practicum.shareit.item.ItemRepo;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {"shareit.booking.lanes.enabled=true", "shareit.booking.lanes.count=4"})
+class BookingLanesTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingLanes bookingLanes;
+
+    @MockBean
+    private HelperService helperService;
+
+    @MockBean
+    private ItemRepo itemRepo;
+
+    @MockBean
+    private BookingRepo bookingRepo;
+
+    @Test
+    void changesOfOneItemRunOneAtATime() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        int[] counter = new int[1];
+
+        hammer(i -> bookingLanes.run(() -> 7L, () -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            for (int j = 0; j < 100; j++) {
+                counter[0]++;
+            }
+            running.decrementAndGet();
+            return true;
+        }));
+
+        assertEquals(0, overlaps.get());
+        assertEquals(THREADS * 100, counter[0]);
+    }
+
+    @Test
+    void nestedChangeRunsInPlace() {
+        assertEquals("done", bookingLanes.run(() -> 1L, () -> bookingLanes.run(() -> 2L, () -> "done")));
+    }
+
+    @Test
+    void failureOfChangeReachesCaller() {
+        assertThrows(ConflictException.class, () -> bookingLanes.run(() -> 1L, () -> {
+            throw new ConflictException("taken");
+        }));
+    }
+
+    @Test
+    void concurrentBookingsOfOneItemAreAddedOnOneLane() throws Exception {
+        User owner = User.builder().id(1L).name("andrey").email("andrey@yandex.ru").build();
+        User booker = User.builder().id(2L).name("ivan").email("ivan@yandex.ru").build();
+        Item item = Item.builder().id(1L).name("hammer").description("steel hammer").available(true).owner(owner).build();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        when(helperService.getItem(anyLong())).thenReturn(item);
+        when(helperService.getUser(anyLong())).thenReturn(booker);
+        when(bookingRepo.save(any(Booking.class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return invocation.getArgument(0);
+        });
+
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<Boolean> added = hammer(i -> {
+            BookingDto bookingDto = BookingDto.builder()
+                    .itemId(item.getId())
+                    .start(start.plusHours(i % 2))
+                    .end(start.plusHours(i % 2 + 3))
+                    .build();
+            try {
+                bookingService.addBooking(bookingDto, booker.getId());
+                return true;
+            } catch (ConflictException e) {
+                return false;
+            }
+        });
+
+        assertEquals(1, added.stream().filter(Boolean::booleanValue).count());
+        assertEquals(1, threads.size());
+        assertTrue(threads.iterator().next().startsWith("booking-lane-"));
+    }
+
+    private List<Boolean> hammer(Attempt attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            int number = i;
+            attempts.add(executor.submit(() -> {
+                ready.await();
+                return attempt.run(number);
+            }));
+        }
+        ready.countDown();
+
+        List<Boolean> results = new ArrayList<>();
+        for (Future<Boolean> future : attempts) {
+            results.add(future.get());
+        }
+        executor.shutdown();
+        return results;
+    }
+
+    private interface Attempt {
+        boolean run(int number);
+    }
+}
@@ -0,0 +1,305 @@
+package ru.practicum.shareit.booking;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import ru.practicum.shareit.helpers.PageCursor;
+import ru.practicum.shareit.item.ItemRepo;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.request.ItemRequestRepo;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepo;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BookingRepositoryTest {
+
+    @Autowired
+    UserRepo userRepo;
+
+    @Autowired
+    ItemRepo itemRepo;
+
+    @Autowired
+    BookingRepo bookingRepo;
+
+    @Autowired
+    ItemRequestRepo itemRequestRepo;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    User owner;
+
+    User booker;
+
+    Item item;
+
+    List<Booking> bookings;
+
+    LocalDateTime now;
+
+    @BeforeEach
+    void beforeEach() {
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        owner = userRepo.save(User.builder()
+                .name("andrey")
+                .email("andrey@yandex.ru")
+                .build());
+
+        booker = userRepo.save(User.builder()
+                .name("ivan")
+                .email("ivan@yandex.ru")
+                .build());
+
+        ItemRequest request = itemRequestRepo.save(ItemRequest.builder()
+                .description("need a hammer")
+                .requester(booker)
+                .created(now)
+                .build());
+
+        item = itemRepo.save(Item.builder()
+                .name("hammer")
+                .description("steel hammer")
+                .available(true)
+                .owner(owner)
+                .request(request)
+                .build());
+
+        bookings = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            bookings.add(bookingRepo.save(Booking.builder()
+                    .start(now.plusDays(i % 3 + 1))
+                    .end(now.plusDays(10))
+                    .item(item)
+                    .booker(booker)
+                    .status(Status.WAITING)
+                    .build()));
+        }
+    }
+
+    @Test
+    void findPageAfterWalksAllBookingsWithoutGapsOrDuplicates() {
+        List<Long> expected = bookingRepo.findAll().stream()
+                .sorted((b1, b2) -> b2.getStart().equals(b1.getStart())
+                        ? b2.getId().compareTo(b1.getId())
+                        : b2.getStart().compareTo(b1.getStart()))
+                .map(Booking::getId)
+                .collect(Collectors.toList());
+
+        for (boolean byOwner : new boolean[]{false, true}) {
+            long userId = byOwner ? owner.getId() : booker.getId();
+            List<Long> walked = new ArrayList<>();
+            PageCursor cursor = PageCursor.first(2);
+
+            for (int guard = 0; guard < 10; guard++) {
+                List<Booking> page = bookingRepo.findPageAfter(query(userId, byOwner, BookingState.FUTURE), cursor);
+                page.stream().limit(2).forEach(booking -> walked.add(booking.getId()));
+                if (page.size() <= 2) {
+                    break;
+                }
+                Booking last = page.get(1);
+                cursor = PageCursor.decode(PageCursor.encode(last.getStart(), last.getId()), 2);
+            }
+
+            assertEquals(expected, walked);
+        }
+    }
+
+    @Test
+    void countAllMatchesListedBookings() {
+        assertEquals(5, bookingRepo.countByQuery(query(booker.getId(), false, BookingState.ALL)));
+        assertEquals(5, bookingRepo.countByQuery(query(owner.getId(), true, BookingState.WAITING)));
+        assertEquals(0, bookingRepo.countByQuery(query(owner.getId(), false, BookingState.ALL)));
+        assertEquals(0, bookingRepo.countByQuery(query(booker.getId(), false, BookingState.PAST)));
+    }
+
+    @Test
+    void bookingListsLoadItemAndBookerInOneQuery() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        PageCursor cursor = PageCursor.first(10);
+
+        List<Runnable> lists = List.of(
+                () -> BookingMapper.returnBookingDtoList(bookingRepo.findByQuery(query(booker.getId(), false, BookingState.ALL), pageRequest)),
+                () -> BookingMapper.returnBookingDtoList(bookingRepo.findByQuery(query(owner.getId(), true, BookingState.WAITING), pageRequest)),
+                () -> BookingMapper.returnBookingDtoList(bookingRepo.findPageAfter(query(owner.getId(), true, BookingState.FUTURE), cursor)));
+
+        for (Runnable list : lists) {
+            entityManager.clear();
+            statistics.clear();
+
+            list.run();
+
+            assertEquals(1, statistics.getPrepareStatementCount());
+        }
+    }
+
+    @Test
+    void findByQueryReturnsSlicesInStartOrder() {
+        Slice<Booking> first = bookingRepo.findByQuery(query(owner.getId(), true, BookingState.FUTURE), PageRequest.of(0, 3));
+        Slice<Booking> second = bookingRepo.findByQuery(query(owner.getId(), true, BookingState.FUTURE), PageRequest.of(1, 3));
+
+        assertEquals(3, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+        assertEquals(2, second.getNumberOfElements());
+        assertFalse(second.hasNext());
+
+        List<Booking> all = new ArrayList<>(first.getContent());
+        all.addAll(second.getContent());
+        for (int i = 1; i < all.size(); i++) {
+            assertFalse(all.get(i).getStart().isAfter(all.get(i - 1).getStart()));
+        }
+
+        assertTrue(bookingRepo.findByQuery(query(booker.getId(), false, BookingState.CURRENT), PageRequest.of(0, 3)).isEmpty());
+    }
+
+    @Test
+    void findByIdInAndOwnerIdSkipsBookingsOfOtherOwners() {
+        List<Long> ids = List.of(bookings.get(0).getId(), bookings.get(1).getId(), -1L);
+
+        List<Booking> owned = bookingRepo.findByIdInAndOwnerId(ids, owner.getId());
+
+        assertEquals(Set.of(bookings.get(0).getId(), bookings.get(1).getId()),
+                owned.stream().map(Booking::getId).collect(Collectors.toSet()));
+        assertTrue(bookingRepo.findByIdInAndOwnerId(ids, booker.getId()).isEmpty());
+    }
+
+    @Test
+    void bulkDecisionIsOneSelectAndOneBatchedUpdate() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        List<Long> ids = bookings.stream().map(Booking::getId).collect(Collectors.toList());
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        for (Booking booking : bookingRepo.findByIdInAndOwnerId(ids, owner.getId())) {
+            booking.setStatus(Status.APPROVED);
+        }
+        entityManager.flush();
+
+        assertEquals(1, statistics.getQueryExecutionCount());
+        assertEquals(ids.size(), statistics.getEntityUpdateCount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void phaseUpdatesMoveStartedAndEndedBookings() {
+        Booking ended = bookingRepo.save(Booking.builder()
+                .start(now.minusDays(2))
+                .end(now.minusDays(1))
+                .item(item)
+                .booker(booker)
+                .status(Status.APPROVED)
+                .phase(Phase.FUTURE)
+                .build());
+        bookingRepo.save(Booking.builder()
+                .start(now.minusHours(1))
+                .end(now.plusDays(1))
+                .item(item)
+                .booker(booker)
+                .status(Status.APPROVED)
+                .phase(Phase.FUTURE)
+                .build());
+        entityManager.flush();
+        entityManager.detach(ended);
+
+        assertEquals(1, bookingRepo.updatePhaseOfEnded(List.of(Phase.FUTURE, Phase.CURRENT), Phase.PAST, now));
+        assertEquals(1, bookingRepo.updatePhaseOfStarted(Phase.FUTURE, Phase.CURRENT, now));
+        entityManager.clear();
+
+        assertEquals(1, bookingRepo.countByQuery(query(booker.getId(), false, BookingState.PAST)));
+        assertEquals(1, bookingRepo.countByQuery(query(booker.getId(), false, BookingState.CURRENT)));
+        assertEquals(5, bookingRepo.countByQuery(query(owner.getId(), true, BookingState.FUTURE)));
+
+        ended.setStatus(Status.REJECTED);
+        bookingRepo.saveAndFlush(ended);
+        entityManager.clear();
+
+        Booking saved = bookingRepo.findById(ended.getId()).get();
+        assertEquals(Status.REJECTED, saved.getStatus());
+        assertEquals(Phase.PAST, saved.getPhase());
+    }
+
+    @Test
+    void timeStatesDoNotWaitForPhaseJob() {
+        bookingRepo.save(Booking.builder()
+                .start(now.minusHours(1))
+                .end(now.plusHours(1))
+                .item(item)
+                .booker(booker)
+                .status(Status.APPROVED)
+                .phase(Phase.FUTURE)
+                .build());
+        bookingRepo.save(Booking.builder()
+                .start(now.minusDays(2))
+                .end(now.minusDays(1))
+                .item(item)
+                .booker(booker)
+                .status(Status.APPROVED)
+                .phase(Phase.CURRENT)
+                .build());
+        entityManager.flush();
+
+        assertEquals(1, bookingRepo.countByQuery(query(booker.getId(), false, BookingState.CURRENT)));
+        assertEquals(1, bookingRepo.countByQuery(query(booker.getId(), false, BookingState.PAST)));
+        assertEquals(5, bookingRepo.countByQuery(query(booker.getId(), false, BookingState.FUTURE)));
+    }
+
+    @Test
+    void staleBookingIsNotSaved() {
+        entityManager.flush();
+        entityManager.clear();
+        Booking stale = bookingRepo.findById(bookings.get(0).getId()).get();
+        entityManager.detach(stale);
+
+        Booking current = bookingRepo.findById(stale.getId()).get();
+        current.setStatus(Status.APPROVED);
+        entityManager.flush();
+        entityManager.clear();
+
+        stale.setStatus(Status.REJECTED);
+        assertEquals(0L, stale.getVersion());
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> bookingRepo.saveAndFlush(stale));
+    }
+
+    private BookingQuery query(long userId, boolean byOwner, BookingState state) {
+        return BookingQuery.builder()
+                .userId(userId)
+                .byOwner(byOwner)
+                .state(state)
+                .now(now)
+                .build();
+    }
+
+    @AfterEach
+    void afterEach() {
+        bookingRepo.deleteAll();
+        itemRepo.deleteAll();
+        itemRequestRepo.deleteAll();
+        userRepo.deleteAll();
+    }
+}
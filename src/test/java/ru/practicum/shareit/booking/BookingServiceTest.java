@@ -7,11 +7,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingOutputDto;
+import ru.practicum.shareit.exceptions.ConflictException;
 import ru.practicum.shareit.exceptions.NotFoundException;
 import ru.practicum.shareit.exceptions.ValidationException;
+import ru.practicum.shareit.helpers.CursorPage;
 import ru.practicum.shareit.helpers.HelperService;
+import ru.practicum.shareit.helpers.PageCursor;
 import ru.practicum.shareit.item.ItemMapper;
 import ru.practicum.shareit.item.ItemRepo;
 import ru.practicum.shareit.item.dto.ItemDto;
@@ -21,10 +28,19 @@ import ru.practicum.shareit.user.UserMapper;
 import ru.practicum.shareit.user.UserRepo;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -47,6 +63,9 @@ public class BookingServiceTest {
     @MockBean
     private BookingRepo bookingRepo;
 
+    @Autowired
+    private BookingIntervalIndex bookingIntervalIndex;
+
     private User user1;
 
     private User user2;
@@ -63,6 +82,8 @@ public class BookingServiceTest {
 
     @BeforeEach
     void beforeEach() {
+        bookingIntervalIndex.rebuild();
+
         user1 = User.builder()
                 .id(1L)
                 .name("andrey")
@@ -114,9 +135,9 @@ public class BookingServiceTest {
     @Test
     void addBooking() {
         when(itemRepo.existsById(anyLong())).thenReturn(true);
-        when(itemRepo.findById(anyLong())).thenReturn(Optional.of(item));
+        when(helperService.getItem(anyLong())).thenReturn(item);
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user2));
+        when(helperService.getUser(anyLong())).thenReturn(user2);
         when(bookingRepo.save(any(Booking.class))).thenReturn(booking1);
 
         BookingOutputDto bookingOutDtoTest = bookingService.addBooking(bookingDto, anyLong());
@@ -128,12 +149,99 @@ public class BookingServiceTest {
         verify(bookingRepo, times(1)).save(any(Booking.class));
     }
 
+    @Test
+    void addBookingOverlapping() {
+        when(helperService.getItem(anyLong())).thenReturn(item);
+        when(helperService.getUser(anyLong())).thenReturn(user2);
+
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        bookingDto.setStart(start);
+        bookingDto.setEnd(start.plusDays(2));
+        bookingDto.setStatus(null);
+        bookingService.addBooking(bookingDto, user2.getId());
+
+        BookingDto overlapping = BookingDto.builder()
+                .itemId(item.getId())
+                .start(start.plusDays(1))
+                .end(start.plusDays(3))
+                .build();
+        BookingDto adjacent = BookingDto.builder()
+                .itemId(item.getId())
+                .start(start.plusDays(2))
+                .end(start.plusDays(3))
+                .build();
+
+        assertThrows(ConflictException.class, () -> bookingService.addBooking(overlapping, user2.getId()));
+        assertEquals(Status.WAITING, bookingService.addBooking(adjacent, user2.getId()).getStatus());
+        verify(bookingRepo, times(2)).save(any(Booking.class));
+    }
+
+    @Test
+    void rejectedBookingReleasesInterval() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        booking2.setStart(start);
+        booking2.setEnd(start.plusDays(2));
+        bookingIntervalIndex.reserve(item.getId(), booking2.getStart(), booking2.getEnd());
+
+        when(bookingRepo.existsById(anyLong())).thenReturn(true);
+        when(helperService.getBooking(anyLong())).thenReturn(booking2);
+
+        bookingService.approveBooking(user1.getId(), booking2.getId(), false);
+
+        bookingIntervalIndex.reserve(item.getId(), start.plusHours(1), start.plusHours(2));
+    }
+
+    @Test
+    void reservationsAroundLongBooking() {
+        LocalDateTime start = LocalDateTime.now().plusDays(10);
+        bookingIntervalIndex.reserve(item.getId(), start, start.plusYears(1));
+        bookingIntervalIndex.reserve(item.getId(), start.minusDays(2), start.minusDays(1));
+        bookingIntervalIndex.reserve(item.getId(), start.plusYears(1), start.plusYears(1).plusDays(1));
+
+        assertThrows(ConflictException.class,
+                () -> bookingIntervalIndex.reserve(item.getId(), start.plusMonths(6), start.plusMonths(6).plusDays(1)));
+        assertThrows(ConflictException.class,
+                () -> bookingIntervalIndex.reserve(item.getId(), start.minusDays(1).minusHours(1), start.plusHours(1)));
+    }
+
+    @Test
+    void concurrentReservationsOfSameIntervalOnlyOneWins() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            LocalDateTime from = start.plusHours(i % 2);
+            attempts.add(executor.submit(() -> {
+                ready.await();
+                try {
+                    bookingIntervalIndex.reserve(item.getId(), from, from.plusHours(3));
+                    return true;
+                } catch (ConflictException e) {
+                    return false;
+                }
+            }));
+        }
+        ready.countDown();
+
+        int reserved = 0;
+        for (Future<Boolean> attempt : attempts) {
+            if (attempt.get()) {
+                reserved++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, reserved);
+    }
+
     @Test
     void addBookingWrongOwner() {
         when(itemRepo.existsById(anyLong())).thenReturn(true);
-        when(itemRepo.findById(anyLong())).thenReturn(Optional.of(item));
+        when(helperService.getItem(anyLong())).thenReturn(item);
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user1));
+        when(helperService.getUser(anyLong())).thenReturn(user1);
 
         assertThrows(NotFoundException.class, () -> bookingService.addBooking(bookingDto, anyLong()));
     }
@@ -144,9 +252,9 @@ public class BookingServiceTest {
         item.setAvailable(false);
 
         when(itemRepo.existsById(anyLong())).thenReturn(true);
-        when(itemRepo.findById(anyLong())).thenReturn(Optional.of(item));
+        when(helperService.getItem(anyLong())).thenReturn(item);
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user2));
+        when(helperService.getUser(anyLong())).thenReturn(user2);
 
         assertThrows(ValidationException.class, () -> bookingService.addBooking(bookingDto, anyLong()));
     }
@@ -154,9 +262,9 @@ public class BookingServiceTest {
     @Test
     void addBookingNotValidDateEnd() {
         when(itemRepo.existsById(anyLong())).thenReturn(true);
-        when(itemRepo.findById(anyLong())).thenReturn(Optional.of(item));
+        when(helperService.getItem(anyLong())).thenReturn(item);
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user2));
+        when(helperService.getUser(anyLong())).thenReturn(user2);
 
         bookingDto.setEnd(LocalDateTime.of(2020, 11, 11, 11, 11));
 
@@ -166,9 +274,9 @@ public class BookingServiceTest {
     @Test
     void addBookingNotValidDateStart() {
         when(itemRepo.existsById(anyLong())).thenReturn(true);
-        when(itemRepo.findById(anyLong())).thenReturn(Optional.of(item));
+        when(helperService.getItem(anyLong())).thenReturn(item);
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user2));
+        when(helperService.getUser(anyLong())).thenReturn(user2);
 
         bookingDto.setStart(LocalDateTime.of(2024, 11, 11, 11, 11));
 
@@ -180,7 +288,7 @@ public class BookingServiceTest {
         BookingOutputDto bookingOutDtoTest;
 
         when(bookingRepo.existsById(anyLong())).thenReturn(true);
-        when(bookingRepo.findById(anyLong())).thenReturn(Optional.of(booking2));
+        when(helperService.getBooking(anyLong())).thenReturn(booking2);
         when(bookingRepo.save(any(Booking.class))).thenReturn(booking2);
 
         bookingOutDtoTest = bookingService.approveBooking(user1.getId(), item.getId(), true);
@@ -192,10 +300,123 @@ public class BookingServiceTest {
         verify(bookingRepo, times(2)).save(any(Booking.class));
     }
 
+    @Test
+    void approveWaitingBookingLeftOutOfIndexChecksOverlap() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        booking2.setStart(start);
+        booking2.setEnd(start.plusDays(2));
+        bookingIntervalIndex.reserve(item.getId(), start.plusDays(1), start.plusDays(3));
+
+        when(helperService.getBooking(anyLong())).thenReturn(booking2);
+
+        assertThrows(ConflictException.class, () -> bookingService.approveBooking(user1.getId(), booking2.getId(), true));
+        verify(bookingRepo, never()).save(any(Booking.class));
+    }
+
+    @Test
+    void approveBookingRetriesAfterConcurrentChange() {
+        when(helperService.getBooking(anyLong())).thenReturn(waitingCopy(booking2), waitingCopy(booking2));
+        when(bookingRepo.save(any(Booking.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Booking.class, booking2.getId()))
+                .thenReturn(booking2);
+
+        BookingOutputDto bookingOutDtoTest = bookingService.approveBooking(user1.getId(), booking2.getId(), true);
+
+        assertEquals(Status.APPROVED, bookingOutDtoTest.getStatus());
+        verify(helperService, times(2)).getBooking(booking2.getId());
+    }
+
+    @Test
+    void approveBookingGivesUpAfterRepeatedConflicts() {
+        when(helperService.getBooking(anyLong()))
+                .thenReturn(waitingCopy(booking2), waitingCopy(booking2), waitingCopy(booking2));
+        when(bookingRepo.save(any(Booking.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Booking.class, booking2.getId()));
+
+        assertThrows(ConflictException.class, () -> bookingService.approveBooking(user1.getId(), booking2.getId(), false));
+        verify(bookingRepo, times(3)).save(any(Booking.class));
+    }
+
+    @Test
+    void approveBookings() {
+        when(bookingRepo.findByIdInAndOwnerId(anyCollection(), anyLong())).thenReturn(List.of(waitingCopy(booking2), booking1));
+
+        List<BookingDecisionResultDto> results = bookingService.approveBookings(user1.getId(), Arrays.asList(
+                BookingDecisionDto.builder().bookingId(2L).approved(true).build(),
+                BookingDecisionDto.builder().bookingId(1L).approved(true).build(),
+                BookingDecisionDto.builder().bookingId(99L).approved(false).build(),
+                BookingDecisionDto.builder().bookingId(2L).approved(false).build(),
+                BookingDecisionDto.builder().approved(true).build(),
+                null));
+
+        assertEquals(List.of(DecisionOutcome.APPLIED, DecisionOutcome.INVALID, DecisionOutcome.NOT_FOUND,
+                        DecisionOutcome.INVALID, DecisionOutcome.INVALID, DecisionOutcome.INVALID),
+                results.stream().map(BookingDecisionResultDto::getOutcome).collect(Collectors.toList()));
+        assertEquals(Status.APPROVED, results.get(0).getStatus());
+        assertEquals(Status.APPROVED, results.get(1).getStatus());
+
+        verify(bookingRepo, times(1)).findByIdInAndOwnerId(Set.of(1L, 2L, 99L), user1.getId());
+        verify(helperService, times(0)).getBooking(anyLong());
+        verify(bookingRepo, times(0)).save(any(Booking.class));
+    }
+
+    @Test
+    void approveBookingsReportsOnlyConflictingBookings() {
+        Booking other = waitingCopy(booking2);
+        other.setId(3L);
+        when(bookingRepo.findByIdInAndOwnerId(anyCollection(), anyLong())).thenAnswer(invocation -> {
+            Booking conflicting = spy(waitingCopy(booking2));
+            int[] calls = new int[1];
+            doAnswer(call -> {
+                if (++calls[0] == 2) {
+                    throw new ObjectOptimisticLockingFailureException(Booking.class, booking2.getId());
+                }
+                return item;
+            }).when(conflicting).getItem();
+            return List.of(conflicting, waitingCopy(other));
+        });
+        Booking changed = waitingCopy(booking2);
+        changed.setVersion(1L);
+        when(bookingRepo.findAllById(anyIterable())).thenReturn(List.of(changed, waitingCopy(other)));
+
+        List<BookingDecisionResultDto> results = bookingService.approveBookings(user1.getId(), List.of(
+                BookingDecisionDto.builder().bookingId(2L).approved(true).build(),
+                BookingDecisionDto.builder().bookingId(3L).approved(true).build()));
+
+        assertEquals(List.of(DecisionOutcome.CONFLICT, DecisionOutcome.APPLIED),
+                results.stream().map(BookingDecisionResultDto::getOutcome).collect(Collectors.toList()));
+        verify(bookingRepo, times(4)).findByIdInAndOwnerId(anyCollection(), anyLong());
+    }
+
+    @Test
+    void approveBookingsTooMany() {
+        List<BookingDecisionDto> decisions = Collections.nCopies(1001,
+                BookingDecisionDto.builder().bookingId(1L).approved(true).build());
+
+        assertThrows(ValidationException.class, () -> bookingService.approveBookings(user1.getId(), decisions));
+        verify(bookingRepo, times(0)).findByIdInAndOwnerId(anyCollection(), anyLong());
+    }
+
+    @Test
+    void expireBookingsRejectsStillWaitingAndReleasesInterval() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        booking2.setStart(start);
+        booking2.setEnd(start.plusDays(2));
+        bookingIntervalIndex.reserve(item.getId(), booking2.getStart(), booking2.getEnd());
+
+        when(bookingRepo.findByIdInAndStatus(anyCollection(), eq(Status.WAITING))).thenReturn(List.of(booking2));
+
+        assertEquals(1, bookingService.expireBookings(List.of(1L, 2L)));
+        assertEquals(Status.REJECTED, booking2.getStatus());
+
+        bookingIntervalIndex.reserve(item.getId(), start.plusHours(1), start.plusHours(2));
+        verify(bookingRepo, times(1)).findByIdInAndStatus(List.of(1L, 2L), Status.WAITING);
+    }
+
     @Test
     void approveBookingWrongUser() {
         when(bookingRepo.existsById(anyLong())).thenReturn(true);
-        when(bookingRepo.findById(anyLong())).thenReturn(Optional.of(booking2));
+        when(helperService.getBooking(anyLong())).thenReturn(booking2);
         when(bookingRepo.save(any(Booking.class))).thenReturn(booking2);
 
         assertThrows(NotFoundException.class, () -> bookingService.approveBooking(user2.getId(), item.getId(), true));
@@ -204,7 +425,7 @@ public class BookingServiceTest {
     @Test
     void approveBookingNotValidStatus() {
         when(bookingRepo.existsById(anyLong())).thenReturn(true);
-        when(bookingRepo.findById(anyLong())).thenReturn(Optional.of(booking1));
+        when(helperService.getBooking(anyLong())).thenReturn(booking1);
         when(bookingRepo.save(any(Booking.class))).thenReturn(booking1);
 
         assertThrows(ValidationException.class, () -> bookingService.approveBooking(user1.getId(), item.getId(), true));
@@ -213,7 +434,7 @@ public class BookingServiceTest {
     @Test
     void getBookingById() {
         when(bookingRepo.existsById(anyLong())).thenReturn(true);
-        when(bookingRepo.findById(anyLong())).thenReturn(Optional.of(booking1));
+        when(helperService.getBooking(anyLong())).thenReturn(booking1);
         when(userRepo.existsById(anyLong())).thenReturn(true);
 
         BookingOutputDto bookingOutDtoTest = bookingService.getBookingById(user1.getId(), booking1.getId());
@@ -227,7 +448,7 @@ public class BookingServiceTest {
     @Test
     void getBookingByErrorId() {
         when(bookingRepo.existsById(anyLong())).thenReturn(true);
-        when(bookingRepo.findById(anyLong())).thenReturn(Optional.of(booking1));
+        when(helperService.getBooking(anyLong())).thenReturn(booking1);
         when(userRepo.existsById(anyLong())).thenReturn(true);
 
         assertThrows(NotFoundException.class, () -> bookingService.getBookingById(2L, booking1.getId()));
@@ -237,7 +458,7 @@ public class BookingServiceTest {
     void getAllBookingsByBookerId() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
         when(helperService.checkPageSize(anyInt(), anyInt())).thenReturn(PageRequest.of(5 / 10, 10));
-        when(bookingRepo.findAllByBookerIdOrderByStartDesc(anyLong(), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
 
         String state = "ALL";
 
@@ -247,7 +468,7 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
 
-        when(bookingRepo.findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartAsc(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
         state = "CURRENT";
 
         bookingOutDtoTest = bookingService.getAllBookingsByBookerId(user1.getId(), state, 5, 10);
@@ -256,7 +477,7 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
 
-        when(bookingRepo.findAllByBookerIdAndEndBeforeOrderByStartDesc(anyLong(), any(LocalDateTime.class), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
         state = "PAST";
 
         bookingOutDtoTest = bookingService.getAllBookingsByBookerId(user1.getId(), state, 5, 10);
@@ -265,7 +486,7 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
 
-        when(bookingRepo.findAllByBookerIdAndStartAfterOrderByStartDesc(anyLong(), any(LocalDateTime.class), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
         state = "FUTURE";
 
         bookingOutDtoTest = bookingService.getAllBookingsByBookerId(user1.getId(), state, 5, 10);
@@ -274,7 +495,7 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
 
-        when(bookingRepo.findAllByBookerIdAndStatusOrderByStartDesc(anyLong(), any(Status.class), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
         state = "WAITING";
 
         bookingOutDtoTest = bookingService.getAllBookingsByBookerId(user1.getId(), state, 5, 10);
@@ -283,7 +504,7 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
 
-        when(bookingRepo.findAllByBookerIdAndStatusOrderByStartDesc(anyLong(), any(Status.class), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
         state = "REJECTED";
 
         bookingOutDtoTest = bookingService.getAllBookingsByBookerId(user1.getId(), state, 5, 10);
@@ -291,6 +512,9 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getId(), booking1.getId());
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
+
+        verify(bookingRepo, times(6)).findByQuery(argThat(query -> !query.isByOwner() && query.getUserId() == user1.getId()), any(Pageable.class));
+        verify(bookingRepo, times(1)).findByQuery(argThat(query -> query.getState() == BookingState.REJECTED), any(Pageable.class));
     }
 
     @Test
@@ -298,7 +522,7 @@ public class BookingServiceTest {
         when(userRepo.existsById(anyLong())).thenReturn(true);
         when(itemRepo.findByOwnerId(anyLong())).thenReturn(List.of(item));
         when(helperService.checkPageSize(anyInt(), anyInt())).thenReturn(PageRequest.of(5 / 10, 10));
-        when(bookingRepo.findAllByItemOwnerIdOrderByStartDesc(anyLong(), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
 
         String state = "ALL";
 
@@ -308,7 +532,7 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
 
-        when(bookingRepo.findAllByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartAsc(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
         state = "CURRENT";
 
         bookingOutDtoTest = bookingService.getAllBookingsForAllItemsByOwnerId(user1.getId(), state, 5, 10);
@@ -317,7 +541,7 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
 
-        when(bookingRepo.findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(anyLong(), any(LocalDateTime.class), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
         state = "PAST";
 
         bookingOutDtoTest = bookingService.getAllBookingsForAllItemsByOwnerId(user1.getId(), state, 5, 10);
@@ -326,7 +550,7 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
 
-        when(bookingRepo.findAllByItemOwnerIdAndStartAfterOrderByStartDesc(anyLong(), any(LocalDateTime.class), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
         state = "FUTURE";
 
         bookingOutDtoTest = bookingService.getAllBookingsForAllItemsByOwnerId(user1.getId(), state, 5, 10);
@@ -335,7 +559,7 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
 
-        when(bookingRepo.findAllByItemOwnerIdAndStatusOrderByStartDesc(anyLong(), any(Status.class), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
         state = "WAITING";
 
         bookingOutDtoTest = bookingService.getAllBookingsForAllItemsByOwnerId(user1.getId(), state, 5, 10);
@@ -344,7 +568,7 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
 
-        when(bookingRepo.findAllByItemOwnerIdAndStatusOrderByStartDesc(anyLong(), any(Status.class), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(booking1)));
+        when(bookingRepo.findByQuery(any(BookingQuery.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(booking1)));
         state = "REJECTED";
 
         bookingOutDtoTest = bookingService.getAllBookingsForAllItemsByOwnerId(user1.getId(), state, 5, 10);
@@ -352,6 +576,8 @@ public class BookingServiceTest {
         assertEquals(bookingOutDtoTest.get(0).getId(), booking1.getId());
         assertEquals(bookingOutDtoTest.get(0).getStatus(), booking1.getStatus());
         assertEquals(bookingOutDtoTest.get(0).getBooker(), UserMapper.returnUserDto(user1));
+
+        verify(bookingRepo, times(6)).findByQuery(argThat(BookingQuery::isByOwner), any(Pageable.class));
     }
 
     @Test
@@ -361,4 +587,61 @@ public class BookingServiceTest {
 
         assertThrows(ValidationException.class, () -> bookingService.getAllBookingsForAllItemsByOwnerId(user1.getId(), "APPROVED", 5, 10));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllBookingsByBookerIdWithCursor() {
+        when(helperService.checkCursor(anyString(), anyInt())).thenReturn(PageCursor.first(1));
+        when(bookingRepo.findPageAfter(any(BookingQuery.class), any(PageCursor.class)))
+                .thenReturn(List.of(booking1, booking2));
+
+        CursorPage<BookingOutputDto> page = bookingService.getAllBookingsByBookerId(user1.getId(), "ALL", "", 1);
+
+        assertEquals(1, page.getContent().size());
+        assertEquals(booking1.getId(), page.getContent().get(0).getId());
+        assertEquals(PageCursor.encode(booking1.getStart(), booking1.getId()), page.getNextCursor());
+
+        verify(bookingRepo, times(1)).findPageAfter(argThat(query -> !query.isByOwner() && query.getState() == BookingState.ALL), any(PageCursor.class));
+    }
+
+    @Test
+    void getAllBookingsForAllItemsByOwnerIdWithCursorLastPage() {
+        when(itemRepo.findByOwnerId(anyLong())).thenReturn(List.of(item));
+        when(helperService.checkCursor(anyString(), anyInt())).thenReturn(PageCursor.first(10));
+        when(bookingRepo.findPageAfter(any(BookingQuery.class), any(PageCursor.class)))
+                .thenReturn(List.of(booking1));
+
+        CursorPage<BookingOutputDto> page = bookingService.getAllBookingsForAllItemsByOwnerId(user1.getId(), "WAITING", "", 10);
+
+        assertEquals(1, page.getContent().size());
+        assertNull(page.getNextCursor());
+
+        verify(bookingRepo, times(1)).findPageAfter(argThat(query -> query.isByOwner() && query.getState() == BookingState.WAITING), any(PageCursor.class));
+    }
+
+    @Test
+    void countAllBookingsByBookerIdEstimateIsCached() {
+        when(bookingRepo.countByQuery(any(BookingQuery.class))).thenReturn(3L, 4L);
+
+        assertEquals(3L, bookingService.countAllBookingsByBookerId(user2.getId(), "FUTURE", "estimate"));
+        assertEquals(3L, bookingService.countAllBookingsByBookerId(user2.getId(), "FUTURE", "estimate"));
+        assertEquals(4L, bookingService.countAllBookingsByBookerId(user2.getId(), "FUTURE", "exact"));
+
+        verify(bookingRepo, times(2)).countByQuery(argThat(query -> query.getUserId() == user2.getId() && query.getState() == BookingState.FUTURE));
+    }
+
+    @Test
+    void countAllBookingsWrongTotal() {
+        assertThrows(ValidationException.class, () -> bookingService.countAllBookingsForAllItemsByOwnerId(user1.getId(), "ALL", "approx"));
+    }
+
+    private static Booking waitingCopy(Booking booking) {
+        return Booking.builder()
+                .id(booking.getId())
+                .start(booking.getStart())
+                .end(booking.getEnd())
+                .item(booking.getItem())
+                .booker(booking.getBooker())
+                .status(Status.WAITING)
+                .build();
+    }
+}
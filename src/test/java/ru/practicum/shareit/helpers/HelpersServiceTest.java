@@ -1,5 +1,6 @@
 package ru.practicum.shareit.helpers;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -9,10 +10,18 @@ import ru.practicum.shareit.exceptions.NotFoundException;
 import ru.practicum.shareit.exceptions.ValidationException;
 import ru.practicum.shareit.item.ItemRepo;
 import ru.practicum.shareit.request.ItemRequestRepo;
+import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepo;
 
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -32,6 +41,14 @@ public class HelpersServiceTest {
     @MockBean
     private ItemRequestRepo itemRequestRepo;
 
+    @Autowired
+    private ExistenceCache existenceCache;
+
+    @BeforeEach
+    void beforeEach() {
+        existenceCache.clear();
+    }
+
     @Test
     void shouldThrowExceptionWhenUserNotFound() {
         when(userRepo.existsById(anyLong())).thenReturn(false);
@@ -39,21 +56,17 @@ public class HelpersServiceTest {
     }
 
     @Test
-    void shouldThrowExceptionWhenItemNotFound() {
-        when(itemRepo.existsById(anyLong())).thenReturn(false);
-        assertThrows(NotFoundException.class, () -> helperService.checkItem(2L));
-    }
+    void shouldLoadUserWithOneQuery() {
+        User user = User.builder().id(1L).name("user").email("user@mail.ru").build();
+        when(userRepo.findById(1L)).thenReturn(Optional.of(user));
 
-    @Test
-    void shouldThrowExceptionWhenBookingNotFound() {
-        when(bookingRepo.existsById(anyLong())).thenReturn(false);
-        assertThrows(NotFoundException.class, () -> helperService.checkBooking(2L));
-    }
+        assertEquals(user, helperService.getUser(1L));
+        assertThrows(NotFoundException.class, () -> helperService.getUser(2L));
+        assertThrows(NotFoundException.class, () -> helperService.getItem(2L));
+        assertThrows(NotFoundException.class, () -> helperService.getBooking(2L));
+        assertThrows(NotFoundException.class, () -> helperService.getRequest(2L));
 
-    @Test
-    void shouldThrowExceptionWhenItemReuestNotFound() {
-        when(itemRequestRepo.existsById(anyLong())).thenReturn(false);
-        assertThrows(NotFoundException.class, () -> helperService.checkRequest(2L));
+        verify(userRepo, times(0)).existsById(anyLong());
     }
 
     @Test
@@ -63,4 +76,59 @@ public class HelpersServiceTest {
         assertThrows(ValidationException.class, () -> helperService.checkPageSize(10, 0));
         assertThrows(ValidationException.class, () -> helperService.checkPageSize(-10, 5));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldDecodeEncodedCursor() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+        PageCursor cursor = helperService.checkCursor(PageCursor.encode(start, 7L), 5);
+
+        assertEquals(start, cursor.getKeyAsDateTime());
+        assertEquals(7L, cursor.getId());
+        assertEquals(5, cursor.getSize());
+        assertTrue(helperService.checkCursor("", 5).isFirst());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenCursorInvalid() {
+        assertThrows(ValidationException.class, () -> helperService.checkCursor("", 0));
+        assertThrows(ValidationException.class, () -> helperService.checkCursor("not a cursor", 5));
+        assertThrows(ValidationException.class, () -> helperService.checkCursor(PageCursor.encode("x", 1L), 5).getKeyAsDateTime());
+    }
+
+    @Test
+    void shouldCacheExistingAndUnknownIds() {
+        when(userRepo.existsById(1L)).thenReturn(true);
+        when(userRepo.existsById(2L)).thenReturn(false);
+
+        helperService.checkUser(1L);
+        helperService.checkUser(1L);
+        assertThrows(NotFoundException.class, () -> helperService.checkUser(2L));
+        assertThrows(NotFoundException.class, () -> helperService.checkUser(2L));
+
+        verify(userRepo, times(1)).existsById(1L);
+        verify(userRepo, times(1)).existsById(2L);
+    }
+
+    @Test
+    void shouldCheckAgainAfterEviction() {
+        when(userRepo.existsById(anyLong())).thenReturn(true, false);
+
+        helperService.checkUser(3L);
+        existenceCache.evict(User.class, 3L);
+
+        assertThrows(NotFoundException.class, () -> helperService.checkUser(3L));
+        verify(userRepo, times(2)).existsById(3L);
+    }
+
+    @Test
+    void shouldNotRememberUnknownIdAfterItIsCreated() {
+        when(userRepo.existsById(anyLong())).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> helperService.checkUser(4L));
+        existenceCache.markExisting(User.class, 4L);
+
+        helperService.checkUser(4L);
+        verify(userRepo, times(1)).existsById(4L);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.shareit.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private final Instant start = Instant.parse("2023-07-05T00:00:00Z");
+
+    @Test
+    void keysComeDueNoEarlierThanTheirDeadline() {
+        TimingWheel<Long> wheel = new TimingWheel<>(Duration.ofSeconds(1), start);
+        wheel.schedule(1L, start.plusSeconds(5));
+        wheel.schedule(2L, start.plusMillis(1500));
+
+        assertTrue(wheel.advance(start.plusSeconds(1)).isEmpty());
+        assertEquals(List.of(2L), wheel.advance(start.plusSeconds(2)));
+        assertTrue(wheel.advance(start.plusMillis(4999)).isEmpty());
+        assertEquals(List.of(1L), wheel.advance(start.plusSeconds(5)));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void farKeysCascadeDownTheLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(Duration.ofSeconds(1), start);
+        long[] delays = {63, 64, 65, 4095, 4096, 4097, 300_000, 20_000_000};
+        for (long delay : delays) {
+            wheel.schedule(delay, start.plusSeconds(delay));
+        }
+
+        for (long delay : delays) {
+            assertTrue(wheel.advance(start.plusSeconds(delay - 1)).isEmpty());
+            assertEquals(List.of(delay), wheel.advance(start.plusSeconds(delay)));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledAndPastKeys() {
+        TimingWheel<Long> wheel = new TimingWheel<>(Duration.ofSeconds(1), start);
+        wheel.schedule(1L, start.plusSeconds(10));
+        wheel.schedule(2L, start.minusSeconds(10));
+        wheel.cancel(1L);
+
+        assertEquals(List.of(2L), wheel.advance(start.plusSeconds(1)));
+        assertTrue(wheel.advance(start.plusSeconds(20)).isEmpty());
+    }
+}
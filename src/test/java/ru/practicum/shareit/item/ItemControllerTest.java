@@ -9,6 +9,9 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.comment.CommentDto;
+import ru.practicum.shareit.helpers.ImportResultDto;
+import ru.practicum.shareit.helpers.ImportStatus;
+import ru.practicum.shareit.item.dto.FreeSlotDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.ItemRequest;
 import ru.practicum.shareit.user.User;
@@ -109,6 +112,30 @@ public class ItemControllerTest {
         verify(itemService, times(1)).addNewItem(1L, itemDto1);
     }
 
+    @Test
+    void importItems() throws Exception {
+        ImportResultDto result = ImportResultDto.of(1, 1L, ImportStatus.CREATED, null);
+        when(itemService.importItems(anyLong(), any())).thenReturn(List.of(result));
+
+        mvc.perform(post("/items/bulk")
+                        .content(mapper.writeValueAsString(List.of(itemDto1)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is("CREATED")));
+
+        mvc.perform(post("/items/bulk")
+                        .content(mapper.writeValueAsString(itemDto1) + "\n" + mapper.writeValueAsString(itemDto2) + "\n")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(1)));
+
+        verify(itemService, times(2)).importItems(eq(1L), any());
+    }
+
     @Test
     void changeItem() throws Exception {
         when(itemService.changeItem(any(ItemDto.class), anyLong(), anyLong())).thenReturn(itemDto1);
@@ -129,6 +156,23 @@ public class ItemControllerTest {
         verify(itemService, times(1)).changeItem(itemDto1, 1L, 1L);
     }
 
+    @Test
+    void getAvailability() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 1, 10, 0, 0);
+        FreeSlotDto slot = FreeSlotDto.builder().start(from).end(to).build();
+        when(itemService.getAvailability(anyLong(), anyLong(), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(List.of(slot));
+
+        mvc.perform(get("/items/{itemId}/availability", 1L)
+                .param("from", from.toString())
+                .param("to", to.toString())
+                .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(List.of(slot))));
+
+        verify(itemService, times(1)).getAvailability(1L, 1L, from, to);
+    }
+
     @Test
     void getItemInfoById() throws Exception {
         when(itemService.getItemInfoById(anyLong(), anyLong())).thenReturn(itemDto1);
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ItemInfoCacheTest {
+
+    private final ItemDto itemDto = ItemDto.builder().id(4L).name("hammer").description("steel hammer").available(true).build();
+
+    @Test
+    void viewLoadedBeforeForgottenInvalidationIsNotCached() {
+        ItemInfoCache cache = new ItemInfoCache(2, Duration.ofMinutes(5));
+        long stamp = cache.stamp();
+
+        cache.evictItem(1L);
+        cache.evictItem(2L);
+        cache.evictItem(3L);
+
+        cache.put(4L, 1L, false, itemDto, stamp);
+        assertNull(cache.get(4L, 2L));
+
+        cache.put(4L, 1L, false, itemDto, cache.stamp());
+        assertNotNull(cache.get(4L, 2L));
+    }
+}
@@ -5,7 +5,6 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
-import org.springframework.data.domain.PageRequest;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepo;
@@ -54,11 +53,16 @@ class ItemRepositoryTest {
     }
 
     @Test
-    void searchInRepo() {
+    void insertAllSetsGeneratedIds() {
+        List<Item> items = List.of(
+                Item.builder().name("saw").description("hand saw").available(true).owner(user).build(),
+                Item.builder().name("drill").description("cordless drill").available(false).owner(user).build());
 
-        List<Item> items = itemRepo.search("panasonic", PageRequest.of(0, 1));
+        itemRepo.insertAll(items);
 
-        assertEquals(1, items.size());
+        assertEquals(items.get(0).getId() + 1, items.get(1).getId());
+        assertEquals("cordless drill", itemRepo.findById(items.get(1).getId()).get().getDescription());
+        assertEquals(4, itemRepo.findByOwnerId(user.getId()).size());
     }
 
     @AfterEach
@@ -6,9 +6,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
 import ru.practicum.shareit.booking.BookingRepo;
 import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.comment.Comment;
@@ -17,7 +19,12 @@ import ru.practicum.shareit.comment.CommentMapper;
 import ru.practicum.shareit.comment.CommentRepo;
 import ru.practicum.shareit.exceptions.NotFoundException;
 import ru.practicum.shareit.exceptions.ValidationException;
+import ru.practicum.shareit.helpers.CursorPage;
 import ru.practicum.shareit.helpers.HelperService;
+import ru.practicum.shareit.helpers.ImportResultDto;
+import ru.practicum.shareit.helpers.ImportStatus;
+import ru.practicum.shareit.helpers.PageCursor;
+import ru.practicum.shareit.item.dto.FreeSlotDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.ItemRequest;
@@ -27,9 +34,10 @@ import ru.practicum.shareit.user.UserRepo;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -59,6 +67,15 @@ public class ItemServiceTest {
     @MockBean
     private HelperService helperService;
 
+    @Autowired
+    private ItemSearchIndex itemSearchIndex;
+
+    @Autowired
+    private ItemInfoCache itemInfoCache;
+
+    @Autowired
+    private BookingIntervalIndex bookingIntervalIndex;
+
     private User user;
     private Item item;
     private ItemDto itemDto;
@@ -70,6 +87,8 @@ public class ItemServiceTest {
 
     @BeforeEach
     void beforeEach() {
+        itemInfoCache.clear();
+
         user = User.builder()
                 .id(1L)
                 .name("andrey")
@@ -95,6 +114,7 @@ public class ItemServiceTest {
 
         comment = Comment.builder()
                 .id(1L)
+                .item(item)
                 .author(user)
                 .created(LocalDateTime.now())
                 .text("text")
@@ -124,8 +144,8 @@ public class ItemServiceTest {
     @Test
     void addItem() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user));
-        when(itemRequestRepo.findById(anyLong())).thenReturn(Optional.ofNullable(itemRequest));
+        when(helperService.getUser(anyLong())).thenReturn(user);
+        when(helperService.getRequest(anyLong())).thenReturn(itemRequest);
         when(itemRepo.save(any(Item.class))).thenReturn(item);
 
         ItemDto itemDtoTest = itemService.addNewItem(user.getId(), itemDto);
@@ -136,13 +156,75 @@ public class ItemServiceTest {
         verify(itemRepo, times(1)).save(any(Item.class));
     }
 
+    @Test
+    void importItems() {
+        when(helperService.getUser(anyLong())).thenReturn(user);
+        when(itemRequestRepo.findAllById(anyCollection())).thenReturn(List.of(itemRequest));
+        doAnswer(invocation -> {
+            List<Item> items = invocation.getArgument(0);
+            long id = 10;
+            for (Item newItem : items) {
+                newItem.setId(id++);
+            }
+            return null;
+        }).when(itemRepo).insertAll(anyList());
+
+        List<ImportResultDto> results = itemService.importItems(user.getId(), Arrays.asList(
+                itemDto,
+                itemDto.toBuilder().name(" ").build(),
+                itemDto.toBuilder().requestId(99L).build(),
+                itemDto.toBuilder().requestId(null).build(),
+                null,
+                itemDto.toBuilder().name("h".repeat(201)).build()).iterator());
+
+        assertEquals(List.of(ImportStatus.CREATED, ImportStatus.INVALID, ImportStatus.INVALID, ImportStatus.CREATED,
+                        ImportStatus.INVALID, ImportStatus.INVALID),
+                results.stream().map(ImportResultDto::getStatus).collect(Collectors.toList()));
+        assertEquals(10L, results.get(0).getId());
+        assertEquals(11L, results.get(3).getId());
+        assertEquals("request id 99 not found", results.get(2).getMessage());
+
+        verify(helperService, times(1)).getUser(user.getId());
+        verify(itemRequestRepo, times(1)).findAllById(anyCollection());
+        verify(itemRepo, times(1)).insertAll(anyList());
+    }
+
+    @Test
+    void importItemsKeepsCommittedBatchesWhenLaterOneFails() {
+        when(helperService.getUser(anyLong())).thenReturn(user);
+        doAnswer(invocation -> {
+            List<Item> items = invocation.getArgument(0);
+            long id = 10;
+            for (Item newItem : items) {
+                newItem.setId(id++);
+            }
+            return null;
+        }).doThrow(new DataIntegrityViolationException("fk_items_owner_id"))
+                .when(itemRepo).insertAll(anyList());
+
+        List<ItemDto> rows = new ArrayList<>();
+        for (int i = 0; i < 501; i++) {
+            rows.add(itemDto.toBuilder().requestId(null).build());
+        }
+        rows.add(itemDto.toBuilder().name("").requestId(null).build());
+
+        List<ImportResultDto> results = itemService.importItems(user.getId(), rows.iterator());
+
+        assertEquals(502, results.size());
+        assertEquals(ImportStatus.CREATED, results.get(499).getStatus());
+        assertEquals(ImportStatus.FAILED, results.get(500).getStatus());
+        assertEquals("rows 501 to 502 were not saved", results.get(500).getMessage());
+        assertEquals(ImportStatus.INVALID, results.get(501).getStatus());
+        verify(itemRepo, times(2)).insertAll(anyList());
+    }
+
     @Test
     void updateItem() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user));
+        when(helperService.getUser(anyLong())).thenReturn(user);
         when(itemRepo.existsById(anyLong())).thenReturn(true);
         when(itemRepo.findByOwnerId(anyLong())).thenReturn(List.of(item));
-        when(itemRepo.findById(anyLong())).thenReturn(Optional.of(item));
+        when(helperService.getItem(anyLong())).thenReturn(item);
         when(itemRepo.save(any(Item.class))).thenReturn(item);
 
         ItemDto itemDtoTest = itemService.changeItem(itemDto, item.getId(), user.getId());
@@ -156,19 +238,17 @@ public class ItemServiceTest {
     @Test
     void updateItemNotBelongUser() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user));
+        when(helperService.getUser(anyLong())).thenReturn(user);
         when(itemRepo.existsById(anyLong())).thenReturn(true);
-        when(itemRepo.findById(anyLong())).thenReturn(Optional.of(item));
-
-        when(itemRepo.findByOwnerId(anyLong())).thenReturn(Collections.emptyList());
+        when(helperService.getItem(anyLong())).thenReturn(item);
 
-        assertThrows(NotFoundException.class, () -> itemService.changeItem(itemDto, item.getId(), user.getId()));
+        assertThrows(NotFoundException.class, () -> itemService.changeItem(itemDto, item.getId(), user.getId() + 1));
     }
 
     @Test
     void getItemById() {
         when(itemRepo.existsById(anyLong())).thenReturn(true);
-        when(itemRepo.findById(anyLong())).thenReturn(Optional.of(item));
+        when(helperService.getItem(anyLong())).thenReturn(item);
         when(userRepo.existsById(anyLong())).thenReturn(true);
         when(bookingRepo.findFirstByItemIdAndStatusAndStartBeforeOrderByStartDesc(item.getId(), Status.APPROVED, LocalDateTime.now())).thenReturn(Optional.of(booking1));
         when(bookingRepo.findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(item.getId(), Status.APPROVED, LocalDateTime.now())).thenReturn(Optional.of(booking2));
@@ -181,7 +261,38 @@ public class ItemServiceTest {
         assertEquals(itemDtoTest.getAvailable(), item.getAvailable());
         assertEquals(itemDtoTest.getRequestId(), item.getRequest().getId());
 
-        verify(itemRepo, times(1)).findById(anyLong());
+        verify(helperService, times(1)).getItem(anyLong());
+    }
+
+    @Test
+    void getItemByIdServedFromCacheUntilItemChanges() {
+        User other = User.builder()
+                .id(2L)
+                .name("ivan")
+                .email("ivan@yandex.ru")
+                .build();
+        when(itemRepo.existsById(anyLong())).thenReturn(true);
+        when(helperService.getItem(anyLong())).thenReturn(item);
+        when(userRepo.existsById(anyLong())).thenReturn(true);
+        when(commentRepo.findByItemId(anyLong())).thenReturn(List.of(comment));
+
+        itemService.getItemInfoById(item.getId(), other.getId());
+        ItemDto itemDtoTest = itemService.getItemInfoById(item.getId(), other.getId());
+
+        assertEquals(itemDtoTest.getId(), item.getId());
+        assertEquals(itemDtoTest.getComments().get(0).getText(), comment.getText());
+        verify(helperService, times(1)).getItem(anyLong());
+
+        itemService.getItemInfoById(item.getId(), user.getId());
+
+        verify(helperService, times(2)).getItem(anyLong());
+
+        when(helperService.getUser(anyLong())).thenReturn(user);
+        when(itemRepo.findByOwnerId(anyLong())).thenReturn(List.of(item));
+        itemService.changeItem(itemDto, item.getId(), user.getId());
+        itemService.getItemInfoById(item.getId(), other.getId());
+
+        verify(helperService, times(4)).getItem(anyLong());
     }
 
     @Test
@@ -189,9 +300,9 @@ public class ItemServiceTest {
         when(userRepo.existsById(anyLong())).thenReturn(true);
         when(helperService.checkPageSize(anyInt(), anyInt())).thenReturn(PageRequest.of(5 / 10, 10));
         when(itemRepo.findByOwnerId(anyLong(), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(item)));
-        when(bookingRepo.findFirstByItemIdAndStatusAndStartBeforeOrderByStartDesc(item.getId(), Status.APPROVED, LocalDateTime.now())).thenReturn(Optional.of(booking1));
-        when(bookingRepo.findFirstByItemIdAndStatusAndStartAfterOrderByStartAsc(item.getId(), Status.APPROVED, LocalDateTime.now())).thenReturn(Optional.of(booking2));
-        when(commentRepo.findByItemId(anyLong())).thenReturn(List.of(comment));
+        when(bookingRepo.findLastBookingsByItemIds(anyCollection(), any(Status.class), any(LocalDateTime.class))).thenReturn(List.of(booking1));
+        when(bookingRepo.findNextBookingsByItemIds(anyCollection(), any(Status.class), any(LocalDateTime.class))).thenReturn(List.of(booking2));
+        when(commentRepo.findByItemIdIn(anyCollection())).thenReturn(List.of(comment));
 
         ItemDto itemDtoTest = itemService.getItemsByUserId(user.getId(), 5, 10).get(0);
 
@@ -199,23 +310,151 @@ public class ItemServiceTest {
         assertEquals(itemDtoTest.getDescription(), item.getDescription());
         assertEquals(itemDtoTest.getAvailable(), item.getAvailable());
         assertEquals(itemDtoTest.getRequestId(), item.getRequest().getId());
+        assertEquals(itemDtoTest.getLastBooking().getId(), booking1.getId());
+        assertEquals(itemDtoTest.getNextBooking().getId(), booking2.getId());
+        assertEquals(itemDtoTest.getComments().get(0).getId(), comment.getId());
 
         verify(itemRepo, times(1)).findByOwnerId(anyLong(), any(PageRequest.class));
+        verify(bookingRepo, times(1)).findLastBookingsByItemIds(anyCollection(), any(Status.class), any(LocalDateTime.class));
+        verify(bookingRepo, times(1)).findNextBookingsByItemIds(anyCollection(), any(Status.class), any(LocalDateTime.class));
+        verify(commentRepo, times(1)).findByItemIdIn(anyCollection());
+        verify(commentRepo, never()).findByItemId(anyLong());
+    }
+
+    @Test
+    void getItemsUserWithoutBookingsAndComments() {
+        when(userRepo.existsById(anyLong())).thenReturn(true);
+        when(helperService.checkPageSize(anyInt(), anyInt())).thenReturn(PageRequest.of(5 / 10, 10));
+        when(itemRepo.findByOwnerId(anyLong(), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(item)));
+
+        ItemDto itemDtoTest = itemService.getItemsByUserId(user.getId(), 5, 10).get(0);
+
+        assertNull(itemDtoTest.getLastBooking());
+        assertNull(itemDtoTest.getNextBooking());
+        assertTrue(itemDtoTest.getComments().isEmpty());
     }
 
     @Test
     void searchItem() {
         when(helperService.checkPageSize(anyInt(), anyInt())).thenReturn(PageRequest.of(5 / 10, 10));
-        when(itemRepo.search(anyString(), any(PageRequest.class))).thenReturn(new ArrayList<>(List.of(item)));
+        itemSearchIndex.index(item);
 
-        ItemDto itemDtoTest = itemService.getItemsByKeyword("text", 5, 10).get(0);
+        ItemDto itemDtoTest = itemService.getItemsByKeyword("HAMM", 5, 10).get(0);
 
         assertEquals(itemDtoTest.getId(), item.getId());
         assertEquals(itemDtoTest.getDescription(), item.getDescription());
         assertEquals(itemDtoTest.getAvailable(), item.getAvailable());
         assertEquals(itemDtoTest.getRequestId(), item.getRequest().getId());
+    }
+
+    @Test
+    void searchItemRankedAndAvailableOnly() {
+        when(helperService.checkPageSize(anyInt(), anyInt())).thenReturn(PageRequest.of(0, 10));
+        Item drill = Item.builder()
+                .id(2L)
+                .name("drill")
+                .description("drill with a hammer mode")
+                .available(true)
+                .owner(user)
+                .build();
+        Item brokenHammer = Item.builder()
+                .id(3L)
+                .name("broken hammer")
+                .description("old")
+                .available(false)
+                .owner(user)
+                .build();
+        itemSearchIndex.index(drill);
+        itemSearchIndex.index(item);
+        itemSearchIndex.index(brokenHammer);
+
+        List<ItemDto> found = itemService.getItemsByKeyword("hammer", 0, 10);
+
+        assertEquals(List.of(item.getId(), drill.getId()), found.stream().map(ItemDto::getId).collect(Collectors.toList()));
 
-        verify(itemRepo, times(1)).search(anyString(), any(PageRequest.class));
+        item.setAvailable(false);
+        itemSearchIndex.index(item);
+
+        found = itemService.getItemsByKeyword("hammer", 0, 10);
+
+        assertEquals(List.of(drill.getId()), found.stream().map(ItemDto::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void getAvailabilitySkipsApprovedBookingsOnly() {
+        bookingIntervalIndex.rebuild();
+        when(helperService.getItem(anyLong())).thenReturn(item);
+
+        LocalDateTime from = LocalDateTime.now().plusDays(1);
+        LocalDateTime to = from.plusDays(10);
+        bookingIntervalIndex.reserve(item.getId(), from.plusDays(1), from.plusDays(2));
+        bookingIntervalIndex.approve(item.getId(), from.plusDays(1), from.plusDays(2));
+        bookingIntervalIndex.reserve(item.getId(), from.plusDays(2), from.plusDays(4));
+        bookingIntervalIndex.approve(item.getId(), from.plusDays(2), from.plusDays(4));
+        bookingIntervalIndex.reserve(item.getId(), from.plusDays(5), from.plusDays(6));
+
+        List<FreeSlotDto> slots = itemService.getAvailability(user.getId(), item.getId(), from, to);
+
+        assertEquals(List.of(
+                FreeSlotDto.builder().start(from).end(from.plusDays(1)).build(),
+                FreeSlotDto.builder().start(from.plusDays(4)).end(to).build()), slots);
+    }
+
+    @Test
+    void getAvailabilityWrongInterval() {
+        LocalDateTime from = LocalDateTime.now().plusDays(1);
+
+        assertThrows(ValidationException.class, () -> itemService.getAvailability(user.getId(), item.getId(), from, from.minusHours(1)));
+    }
+
+    @Test
+    void searchItemWithCursor() {
+        when(helperService.checkCursor(anyString(), anyInt())).thenAnswer(invocation ->
+                PageCursor.decode(invocation.getArgument(0), invocation.getArgument(1)));
+        Item drill = Item.builder()
+                .id(2L)
+                .name("drill")
+                .description("drill with a hammer mode")
+                .available(true)
+                .owner(user)
+                .build();
+        itemSearchIndex.index(item);
+        itemSearchIndex.index(drill);
+
+        CursorPage<ItemDto> firstPage = itemService.getItemsByKeyword("hammer", "", 1);
+
+        assertEquals(item.getId(), firstPage.getContent().get(0).getId());
+        assertNotNull(firstPage.getNextCursor());
+
+        CursorPage<ItemDto> secondPage = itemService.getItemsByKeyword("hammer", firstPage.getNextCursor(), 1);
+
+        assertEquals(drill.getId(), secondPage.getContent().get(0).getId());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    void searchItemWithCursorWalksAllHitsInRankOrder() {
+        when(helperService.checkCursor(anyString(), anyInt())).thenAnswer(invocation ->
+                PageCursor.decode(invocation.getArgument(0), invocation.getArgument(1)));
+        for (long id = 10; id > 5; id--) {
+            itemSearchIndex.index(Item.builder()
+                    .id(id)
+                    .name(id % 2 == 0 ? "saw" : "sawmill")
+                    .description("wood saw")
+                    .available(true)
+                    .owner(user)
+                    .build());
+        }
+
+        List<Long> walked = new ArrayList<>();
+        String cursor = "";
+        for (int guard = 0; guard < 10 && cursor != null; guard++) {
+            CursorPage<ItemDto> page = itemService.getItemsByKeyword("saw", cursor, 2);
+            page.getContent().forEach(itemDto -> walked.add(itemDto.getId()));
+            cursor = page.getNextCursor();
+        }
+
+        assertEquals(List.of(6L, 8L, 10L, 7L, 9L), walked);
     }
 
     @Test
@@ -225,16 +464,14 @@ public class ItemServiceTest {
         List<ItemDto> itemDtoTest = itemService.getItemsByKeyword("", 5, 10);
 
         assertTrue(itemDtoTest.isEmpty());
-
-        verify(itemRepo, times(0)).search(anyString(), any(PageRequest.class));
     }
 
     @Test
     void addComment() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user));
+        when(helperService.getUser(anyLong())).thenReturn(user);
         when(itemRepo.existsById(anyLong())).thenReturn(true);
-        when(itemRepo.findById(anyLong())).thenReturn(Optional.of(item));
+        when(helperService.getItem(anyLong())).thenReturn(item);
         when(bookingRepo.findFirstByItemIdAndBookerIdAndStatusAndEndBefore(anyLong(), anyLong(), any(Status.class), any(LocalDateTime.class))).thenReturn(Optional.of(booking1));
         when(commentRepo.save(any(Comment.class))).thenReturn(comment);
 
@@ -250,9 +487,9 @@ public class ItemServiceTest {
     @Test
     void addCommentUserNotBookingItem() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user));
+        when(helperService.getUser(anyLong())).thenReturn(user);
         when(itemRepo.existsById(anyLong())).thenReturn(true);
-        when(itemRepo.findById(anyLong())).thenReturn(Optional.of(item));
+        when(helperService.getItem(anyLong())).thenReturn(item);
         when(bookingRepo.findFirstByItemIdAndBookerIdAndStatusAndEndBefore(anyLong(), anyLong(), any(Status.class), any(LocalDateTime.class))).thenReturn(Optional.empty());
 
         assertThrows(ValidationException.class, () -> itemService.postComment(user.getId(), item.getId(), commentDto));
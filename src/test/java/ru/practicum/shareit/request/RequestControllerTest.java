@@ -8,6 +8,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import java.nio.charset.StandardCharsets;
@@ -118,4 +119,25 @@ public class RequestControllerTest {
 
         verify(itemRequestService, times(1)).getRequestById(1L, 1L);
     }
+
+    @Test
+    void getMatches() throws Exception {
+        ItemDto itemDto = ItemDto.builder()
+                .id(3L)
+                .name("drill")
+                .description("cordless drill")
+                .available(true)
+                .build();
+        when(itemRequestService.getMatches(anyLong(), anyLong())).thenReturn(List.of(itemDto));
+
+        mvc.perform(get("/requests/{requestId}/matches", itemRequestDto1.getId())
+                .characterEncoding(StandardCharsets.UTF_8)
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(itemDto.getId()), Long.class))
+                .andExpect(jsonPath("$[0].name", is(itemDto.getName()), String.class));
+
+        verify(itemRequestService, times(1)).getMatches(1L, 1L);
+    }
 }
\ No newline at end of file
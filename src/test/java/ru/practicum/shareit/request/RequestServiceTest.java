@@ -7,8 +7,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.exceptions.NotFoundException;
+import ru.practicum.shareit.helpers.CursorPage;
 import ru.practicum.shareit.helpers.HelperService;
+import ru.practicum.shareit.helpers.PageCursor;
 import ru.practicum.shareit.item.ItemRepo;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.user.User;
@@ -16,13 +20,16 @@ import ru.practicum.shareit.user.UserRepo;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "shareit.cache.request-feed.size=2")
 public class RequestServiceTest {
 
     @Autowired
@@ -40,6 +47,14 @@ public class RequestServiceTest {
     @MockBean
     private HelperService helperService;
 
+    @Autowired
+    private RequestFeed requestFeed;
+
+    @Autowired
+    private RequestMatcher requestMatcher;
+
+    @MockBean
+    private RequestMatchRepo requestMatchRepo;
 
     private User user1;
     private User user2;
@@ -50,6 +65,8 @@ public class RequestServiceTest {
 
     @BeforeEach
     void beforeEach() {
+        requestFeed.clear();
+
         user1 = User.builder()
                 .id(1L)
                 .name("andrey")
@@ -65,13 +82,15 @@ public class RequestServiceTest {
         itemReq1 = ItemRequest.builder()
                 .id(1L)
                 .description("req1 text")
+                .requester(user1)
                 .created(LocalDateTime.now())
                 .build();
 
         itemReq2 = ItemRequest.builder()
                 .id(2L)
                 .description("req2 text")
-                .created(LocalDateTime.now())
+                .requester(user2)
+                .created(itemReq1.getCreated().plusSeconds(1))
                 .build();
 
         item = Item.builder()
@@ -89,7 +108,7 @@ public class RequestServiceTest {
     @Test
     void addRequest() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
-        when(userRepo.findById(anyLong())).thenReturn(Optional.of(user1));
+        when(helperService.getUser(anyLong())).thenReturn(user1);
         when(itemRequestRepo.save(any(ItemRequest.class))).thenReturn(itemReq1);
 
         ItemRequestDto itemRequestDtoTest = itemRequestService.addRequest(itemRequestDto, user1.getId());
@@ -104,7 +123,7 @@ public class RequestServiceTest {
     void getRequests() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
         when(itemRequestRepo.findByRequesterIdOrderByCreatedAsc(anyLong())).thenReturn(List.of(itemReq1));
-        when(itemRepo.findByRequestId(anyLong())).thenReturn(List.of(item));
+        when(itemRepo.findByRequestIdIn(anyCollection())).thenReturn(List.of(item));
 
         ItemRequestDto itemRequestDtoTest = itemRequestService.getRequests(user1.getId()).get(0);
 
@@ -116,11 +135,26 @@ public class RequestServiceTest {
         verify(itemRequestRepo, times(1)).findByRequesterIdOrderByCreatedAsc(anyLong());
     }
 
+    @Test
+    void getRequestsLoadsItemsWithOneQuery() {
+        when(userRepo.existsById(anyLong())).thenReturn(true);
+        when(itemRequestRepo.findByRequesterIdOrderByCreatedAsc(anyLong())).thenReturn(List.of(itemReq1, itemReq2));
+        when(itemRepo.findByRequestIdIn(anyCollection())).thenReturn(List.of(item));
+
+        List<ItemRequestDto> requests = itemRequestService.getRequests(user1.getId());
+
+        assertEquals(1, requests.get(0).getItems().size());
+        assertEquals(0, requests.get(1).getItems().size());
+
+        verify(itemRepo, times(1)).findByRequestIdIn(List.of(itemReq1.getId(), itemReq2.getId()));
+        verify(itemRepo, times(0)).findByRequestId(anyLong());
+    }
+
     @Test
     void getAllRequests() {
         when(helperService.checkPageSize(anyInt(), anyInt())).thenReturn(PageRequest.of(5 / 10, 10));
-        when(itemRequestRepo.findByIdIsNotOrderByCreatedAsc(anyLong(), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(itemReq1)));
-        when(itemRepo.findByRequestId(anyLong())).thenReturn(List.of(item));
+        when(itemRequestRepo.findByRequesterIdNotOrderByCreatedDesc(anyLong(), any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(itemReq1)));
+        when(itemRepo.findByRequestIdIn(anyCollection())).thenReturn(List.of(item));
 
         ItemRequestDto itemRequestDtoTest = itemRequestService.getAllRequests(user1.getId(), 5, 10).get(0);
 
@@ -129,14 +163,53 @@ public class RequestServiceTest {
         assertEquals(itemRequestDtoTest.getItems().get(0).getDescription(), item.getDescription());
         assertEquals(itemRequestDtoTest.getItems().get(0).getAvailable(), item.getAvailable());
 
-        verify(itemRequestRepo, times(1)).findByIdIsNotOrderByCreatedAsc(anyLong(), any(PageRequest.class));
+        verify(itemRequestRepo, times(1)).findByRequesterIdNotOrderByCreatedDesc(anyLong(), any(PageRequest.class));
+    }
+
+    @Test
+    void getAllRequestsWithCursor() {
+        PageCursor cursor = PageCursor.decode(PageCursor.encode(itemReq1.getCreated(), itemReq1.getId()), 1);
+        when(helperService.checkCursor(anyString(), anyInt())).thenReturn(cursor);
+        when(itemRequestRepo.findNewest(any(PageRequest.class))).thenReturn(List.of(itemReq2, itemReq1));
+        when(itemRequestRepo.findOthersBefore(anyLong(), any(LocalDateTime.class), anyLong(), any(PageRequest.class))).thenReturn(List.of(itemReq2));
+        when(itemRepo.findByRequestIdIn(anyCollection())).thenReturn(List.of(item));
+
+        CursorPage<ItemRequestDto> page = itemRequestService.getAllRequests(user2.getId(), "cursor", 1);
+
+        assertEquals(itemReq2.getId(), page.getContent().get(0).getId());
+        assertNull(page.getNextCursor());
+
+        verify(itemRequestRepo, times(1)).findOthersBefore(user2.getId(), itemReq1.getCreated(), itemReq1.getId(), PageRequest.of(0, 2));
+    }
+
+    @Test
+    void getAllRequestsFirstPageServedFromFeed() {
+        when(helperService.checkCursor(anyString(), anyInt())).thenReturn(PageCursor.first(1));
+        when(itemRequestRepo.findNewest(any(PageRequest.class))).thenReturn(List.of(itemReq1));
+        when(itemRepo.findByRequestIdIn(anyCollection())).thenReturn(List.of(item));
+
+        itemRequestService.getAllRequests(3L, "", 1);
+        when(helperService.getUser(anyLong())).thenReturn(user2);
+        when(itemRequestRepo.save(any(ItemRequest.class))).thenReturn(itemReq2);
+        itemRequestService.addRequest(itemRequestDto, user2.getId());
+
+        CursorPage<ItemRequestDto> page = itemRequestService.getAllRequests(3L, "", 1);
+
+        assertEquals(itemReq2.getId(), page.getContent().get(0).getId());
+        assertEquals(PageCursor.encode(itemReq2.getCreated(), itemReq2.getId()), page.getNextCursor());
+        assertEquals(List.of(itemReq1.getId()), itemRequestService.getAllRequests(user2.getId(), "", 1).getContent().stream()
+                .map(ItemRequestDto::getId)
+                .collect(Collectors.toList()));
+
+        verify(itemRequestRepo, times(1)).findNewest(PageRequest.of(0, 2));
+        verify(itemRequestRepo, times(0)).findByRequesterIdNotOrderByCreatedDescIdDesc(anyLong(), any(PageRequest.class));
     }
 
     @Test
     void getRequestById() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
         when(itemRequestRepo.existsById(anyLong())).thenReturn(true);
-        when(itemRequestRepo.findById(anyLong())).thenReturn(Optional.ofNullable(itemReq1));
+        when(helperService.getRequest(anyLong())).thenReturn(itemReq1);
         when(itemRepo.findByRequestId(anyLong())).thenReturn(List.of(item));
 
 
@@ -147,7 +220,49 @@ public class RequestServiceTest {
         assertEquals(itemRequestDtoTest.getItems().get(0).getId(), item.getId());
         assertEquals(itemRequestDtoTest.getItems().get(0).getRequestId(), user1.getId());
 
-        verify(itemRequestRepo, times(1)).findById(anyLong());
+        verify(helperService, times(1)).getRequest(anyLong());
+    }
+
+    @Test
+    void matcherScoresOpenRequestsOfOtherUsers() {
+        requestMatcher.rebuild();
+        itemReq1.setDescription("need a cordless drill for concrete walls");
+        itemReq2.setDescription("looking for a folding ladder");
+        requestMatcher.addRequest(itemReq1);
+        requestMatcher.addRequest(itemReq2);
+
+        assertEquals(List.of(itemReq1.getId()), List.copyOf(requestMatcher.score(user2.getId(), "Drill. Cordless drill with two batteries").keySet()));
+        assertTrue(requestMatcher.score(user1.getId(), "Drill. Cordless drill with two batteries").isEmpty());
+        assertTrue(requestMatcher.score(user2.getId(), "garden hose").isEmpty());
+
+        requestMatcher.closeRequest(itemReq1.getId());
+
+        assertTrue(requestMatcher.score(user2.getId(), "Drill. Cordless drill with two batteries").isEmpty());
+    }
+
+    @Test
+    void getMatches() {
+        when(helperService.getRequest(anyLong())).thenReturn(itemReq1);
+        when(requestMatchRepo.findByRequestId(anyLong())).thenReturn(List.of(RequestMatch.builder()
+                .id(1L)
+                .request(itemReq1)
+                .item(item)
+                .score(0.5)
+                .created(LocalDateTime.now())
+                .build()));
+
+        List<ItemDto> matches = itemRequestService.getMatches(user1.getId(), itemReq1.getId());
+
+        assertEquals(item.getId(), matches.get(0).getId());
+        verify(requestMatchRepo, times(1)).findByRequestId(itemReq1.getId());
+    }
+
+    @Test
+    void getMatchesOfOtherUsersRequest() {
+        when(helperService.getRequest(anyLong())).thenReturn(itemReq1);
+
+        assertThrows(NotFoundException.class, () -> itemRequestService.getMatches(user2.getId(), itemReq1.getId()));
+        verify(requestMatchRepo, times(0)).findByRequestId(anyLong());
     }
 
     @Test
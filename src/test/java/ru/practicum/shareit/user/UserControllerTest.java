@@ -8,13 +8,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.helpers.ImportResultDto;
+import ru.practicum.shareit.helpers.ImportStatus;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -119,4 +124,61 @@ public class UserControllerTest {
         verify(userService, times(1)).findAll();
     }
 
+    @Test
+    void findAllUsersByPage() throws Exception {
+
+        when(userService.findAll(anyInt(), anyInt())).thenReturn(List.of(userDto2));
+
+        mvc.perform(get("/users")
+                        .param("from", "1")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(List.of(userDto2))));
+
+        verify(userService, times(1)).findAll(1, 1);
+        verify(userService, times(0)).findAll();
+    }
+
+    @Test
+    void importUsers() throws Exception {
+        ImportResultDto result = ImportResultDto.builder().row(1).id(1L).status(ImportStatus.CREATED).build();
+        when(userService.importUsers(any())).thenReturn(List.of(result));
+
+        mvc.perform(post("/users/bulk")
+                        .content(mapper.writeValueAsString(List.of(userDto1)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is("CREATED")));
+
+        mvc.perform(post("/users/bulk")
+                        .content(mapper.writeValueAsString(userDto1) + "\n" + mapper.writeValueAsString(userDto2) + "\n")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(1)));
+
+        verify(userService, times(2)).importUsers(any());
+    }
+
+    @Test
+    void streamAllUsers() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<UserDto> action = invocation.getArgument(0);
+            action.accept(userDto1);
+            action.accept(userDto2);
+            return null;
+        }).when(userService).streamAll(any());
+
+        MvcResult result = mvc.perform(get("/users/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(mapper.writeValueAsString(userDto1) + "\n"
+                        + mapper.writeValueAsString(userDto2) + "\n"));
+    }
+
 }
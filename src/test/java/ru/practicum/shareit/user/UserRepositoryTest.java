@@ -0,0 +1,65 @@
+package ru.practicum.shareit.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+class UserRepositoryTest {
+
+    @Autowired
+    UserRepo userRepo;
+
+    @Test
+    void insertAllSetsGeneratedIds() {
+        List<User> users = List.of(
+                User.builder().name("andrey").email("andrey@yandex.ru").build(),
+                User.builder().name("ivan").email("ivan@yandex.ru").build());
+
+        userRepo.insertAll(users);
+
+        assertNotNull(users.get(0).getId());
+        assertEquals(users.get(0).getId() + 1, users.get(1).getId());
+        assertEquals("ivan@yandex.ru", userRepo.findById(users.get(1).getId()).get().getEmail());
+        assertEquals(List.of("andrey@yandex.ru"), userRepo.findLowerEmailsIn(List.of("andrey@yandex.ru", "petr@yandex.ru")));
+    }
+
+    @Test
+    void emailKeepsItsCaseAndIsUniqueIgnoringIt() {
+        User user = User.builder().name("andrey").email("Andrey@Yandex.ru").build();
+        userRepo.insertAll(List.of(user));
+
+        assertEquals("Andrey@Yandex.ru", userRepo.findById(user.getId()).get().getEmail());
+        assertTrue(userRepo.existsByEmailLower("andrey@yandex.ru"));
+        assertFalse(userRepo.existsByEmailLowerAndIdNot("andrey@yandex.ru", user.getId()));
+        assertThrows(DataIntegrityViolationException.class, () -> userRepo.insertAll(List.of(
+                User.builder().name("andrey").email("andrey@yandex.RU").build())));
+    }
+
+    @Test
+    void savedAndInsertedUsersShareOneEmailKey() {
+        User saved = userRepo.saveAndFlush(User.builder().name("anna").email("ÄNNA@Mail.de").build());
+
+        assertEquals("änna@mail.de", saved.getEmailLower());
+        assertTrue(userRepo.existsByEmailLower(User.lowerEmail("Änna@mail.DE")));
+        assertThrows(DataIntegrityViolationException.class, () -> userRepo.insertAll(List.of(
+                User.builder().name("anna").email("änna@MAIL.de").build())));
+    }
+
+    @Test
+    void insertAllRejectsTakenEmail() {
+        userRepo.insertAll(List.of(User.builder().name("andrey").email("andrey@yandex.ru").build()));
+
+        assertThrows(DataIntegrityViolationException.class, () -> userRepo.insertAll(List.of(
+                User.builder().name("andrey").email("andrey@yandex.ru").build())));
+    }
+}
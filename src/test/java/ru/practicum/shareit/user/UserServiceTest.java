@@ -5,11 +5,28 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import ru.practicum.shareit.booking.BookingInterval;
+import ru.practicum.shareit.booking.BookingIntervalIndex;
+import ru.practicum.shareit.booking.BookingRepo;
+import ru.practicum.shareit.booking.Status;
 import ru.practicum.shareit.exceptions.EmailNotExistException;
+import ru.practicum.shareit.exceptions.NotFoundException;
+import ru.practicum.shareit.helpers.ExistenceCache;
+import ru.practicum.shareit.helpers.ImportResultDto;
+import ru.practicum.shareit.helpers.ImportStatus;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -25,6 +42,15 @@ public class UserServiceTest {
     @MockBean
     private UserRepo userRepo;
 
+    @MockBean
+    private BookingRepo bookingRepo;
+
+    @Autowired
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @Autowired
+    private ExistenceCache existenceCache;
+
     User user1;
 
     User user2;
@@ -36,6 +62,8 @@ public class UserServiceTest {
 
     @BeforeEach
     void setUp() {
+        existenceCache.clear();
+
         user1 = User.builder()
                 .id(1L)
                 .name("andrey")
@@ -57,7 +85,7 @@ public class UserServiceTest {
 
     @Test
     void createUser() {
-        when(userRepo.save(any(User.class))).thenReturn(user1);
+        when(userRepo.saveAndFlush(any(User.class))).thenReturn(user1);
 
         UserDto userDtoTest = userService.create(userDto1);
 
@@ -65,14 +93,120 @@ public class UserServiceTest {
         assertEquals(userDtoTest.getName(), userDto1.getName());
         assertEquals(userDtoTest.getEmail(), userDto1.getEmail());
 
-        verify(userRepo, times(1)).save(user1);
+        verify(userRepo, times(1)).saveAndFlush(user1);
+    }
+
+    @Test
+    void createUserChecksEmailIgnoringCase() {
+        userDto1.setEmail("Andrey@YA.ru");
+
+        UserDto userDtoTest = userService.create(userDto1);
+
+        assertEquals("Andrey@YA.ru", userDtoTest.getEmail());
+        verify(userRepo, times(1)).existsByEmailLower("andrey@ya.ru");
+    }
+
+    @Test
+    void createUserWithExistingEmail() {
+        when(userRepo.existsByEmailLower(anyString())).thenReturn(true);
+
+        assertThrows(EmailNotExistException.class, () -> userService.create(userDto1));
+        verify(userRepo, times(0)).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    void createUserWhenEmailTakenConcurrently() {
+        when(userRepo.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("Unique index or primary key violation: \"PUBLIC.UQ_USER_EMAIL_LOWER_INDEX_4\""));
+
+        assertThrows(EmailNotExistException.class, () -> userService.create(userDto1));
+    }
+
+    @Test
+    void createUserRethrowsOtherConstraintViolations() {
+        when(userRepo.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("pk_user"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.create(userDto1));
+    }
+
+    @Test
+    void importUsers() {
+        when(userRepo.findLowerEmailsIn(anyCollection())).thenReturn(List.of("ivan@yandex.ru"));
+        doAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.get(0).setId(3L);
+            return null;
+        }).when(userRepo).insertAll(anyList());
+
+        List<ImportResultDto> results = userService.importUsers(Arrays.asList(
+                UserDto.builder().name("petr").email("Petr@yandex.ru").build(),
+                UserDto.builder().name("petr").email("petr@yandex.ru").build(),
+                UserDto.builder().name("ivan").email("ivan@yandex.ru").build(),
+                UserDto.builder().name("").email("not an email").build(),
+                null,
+                UserDto.builder().name("n".repeat(301)).email("long@yandex.ru").build()).iterator());
+
+        assertEquals(List.of(ImportStatus.CREATED, ImportStatus.DUPLICATE, ImportStatus.DUPLICATE, ImportStatus.INVALID,
+                        ImportStatus.INVALID, ImportStatus.INVALID),
+                results.stream().map(ImportResultDto::getStatus).collect(Collectors.toList()));
+        assertEquals(List.of(1, 2, 3, 4, 5, 6), results.stream().map(ImportResultDto::getRow).collect(Collectors.toList()));
+        assertEquals(3L, results.get(0).getId());
+        verify(userRepo, times(1)).insertAll(List.of(User.builder().id(3L).build()));
+        verify(userRepo, times(0)).save(any(User.class));
+    }
+
+    @Test
+    void importUsersMarksEmailsTakenConcurrentlyAsDuplicate() {
+        when(userRepo.findLowerEmailsIn(anyCollection())).thenReturn(List.of(), List.of("petr@yandex.ru"));
+        doThrow(new DataIntegrityViolationException("Unique index or primary key violation: \"PUBLIC.UQ_USER_EMAIL_LOWER_INDEX_4\""))
+                .doAnswer(invocation -> {
+                    List<User> users = invocation.getArgument(0);
+                    users.get(0).setId(4L);
+                    return null;
+                }).when(userRepo).insertAll(anyList());
+
+        List<ImportResultDto> results = userService.importUsers(List.of(
+                UserDto.builder().name("petr").email("petr@yandex.ru").build(),
+                UserDto.builder().name("oleg").email("oleg@yandex.ru").build()).iterator());
+
+        assertEquals(List.of(ImportStatus.DUPLICATE, ImportStatus.CREATED),
+                results.stream().map(ImportResultDto::getStatus).collect(Collectors.toList()));
+        assertEquals(4L, results.get(1).getId());
+        verify(userRepo, times(2)).insertAll(anyList());
+    }
+
+    @Test
+    void importUsersReportsBatchAsFailedWhenRetriesRunOut() {
+        when(userRepo.findLowerEmailsIn(anyCollection())).thenReturn(List.of());
+        doThrow(new DataIntegrityViolationException("Unique index or primary key violation: \"PUBLIC.UQ_USER_EMAIL_LOWER_INDEX_4\""))
+                .when(userRepo).insertAll(anyList());
+
+        List<ImportResultDto> results = userService.importUsers(List.of(
+                UserDto.builder().name("petr").email("petr@yandex.ru").build(),
+                UserDto.builder().name("").email("oleg@yandex.ru").build()).iterator());
+
+        assertEquals(List.of(ImportStatus.FAILED, ImportStatus.INVALID),
+                results.stream().map(ImportResultDto::getStatus).collect(Collectors.toList()));
+        verify(userRepo, times(3)).insertAll(anyList());
+    }
+
+    @Test
+    void importUsersDoesNotRetryOtherConstraintViolations() {
+        when(userRepo.findLowerEmailsIn(anyCollection())).thenReturn(List.of());
+        doThrow(new DataIntegrityViolationException("pk_user")).when(userRepo).insertAll(anyList());
+
+        List<ImportResultDto> results = userService.importUsers(List.of(
+                UserDto.builder().name("petr").email("petr@yandex.ru").build()).iterator());
+
+        assertEquals(ImportStatus.FAILED, results.get(0).getStatus());
+        assertEquals("rows 1 to 1 were not saved", results.get(0).getMessage());
+        verify(userRepo, times(1)).insertAll(anyList());
     }
 
     @Test
     void updateUser() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
         when(userRepo.findById(anyLong())).thenReturn(Optional.of(user1));
-        when(userRepo.findByEmail(anyString())).thenReturn(List.of(user1));
+        when(userRepo.existsByEmailLowerAndIdNot(anyString(), anyLong())).thenReturn(false);
         when(userRepo.save(any(User.class))).thenReturn(user1);
 
         userDto1.setName("ivan");
@@ -93,7 +227,7 @@ public class UserServiceTest {
     void updateUserWithNotValidEmail() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
         when(userRepo.findById(anyLong())).thenReturn(Optional.of(user1));
-        when(userRepo.findByEmail(anyString())).thenReturn(List.of(user1));
+        when(userRepo.existsByEmailLowerAndIdNot(anyString(), anyLong())).thenReturn(true);
 
         user1.setEmail("21.RU");
         assertThrows(EmailNotExistException.class, () -> userService.updateUser(userDto1, 2L));
@@ -103,7 +237,7 @@ public class UserServiceTest {
     void updateUserWithEmptyEmail() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
         when(userRepo.findById(anyLong())).thenReturn(Optional.of(user1));
-        when(userRepo.findByEmail(anyString())).thenReturn(List.of(user1));
+        when(userRepo.existsByEmailLowerAndIdNot(anyString(), anyLong())).thenReturn(true);
 
         user1.setEmail("");
         assertThrows(EmailNotExistException.class, () -> userService.updateUser(userDto1, 2L));
@@ -119,6 +253,29 @@ public class UserServiceTest {
         verify(userRepo, times(1)).deleteById(1L);
     }
 
+    @Test
+    void deleteUserByIdReleasesIntervalsOfCascadedBookings() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        bookingIntervalIndex.reserve(7L, start, start.plusDays(1));
+        when(userRepo.existsById(anyLong())).thenReturn(true);
+        when(bookingRepo.findIntervalsOfUser(anyLong(), anyCollection(), any(LocalDateTime.class)))
+                .thenReturn(List.of(new BookingInterval(3L, 7L, start, start.plusDays(1), Status.WAITING)));
+
+        userService.deleteUserById(1L);
+
+        bookingIntervalIndex.reserve(7L, start, start.plusDays(1));
+    }
+
+    @Test
+    void deletedUserIsNotFoundAfterwards() {
+        when(userRepo.existsById(anyLong())).thenReturn(true, false);
+
+        userService.deleteUserById(1L);
+
+        assertThrows(NotFoundException.class, () -> userService.deleteUserById(1L));
+        verify(userRepo, times(2)).existsById(1L);
+    }
+
     @Test
     void getUserById() {
         when(userRepo.existsById(anyLong())).thenReturn(true);
@@ -154,4 +311,26 @@ public class UserServiceTest {
         verify(userRepo, times(2)).findAll();
     }
 
+    @Test
+    void findAllUsersByPage() {
+        when(userRepo.findPage(any(Pageable.class))).thenReturn(new SliceImpl<>(List.of(user2)));
+
+        List<UserDto> userDtoList = userService.findAll(1, 1);
+
+        assertEquals(List.of(userDto2), userDtoList);
+        verify(userRepo, times(1)).findPage(PageRequest.of(1, 1));
+        verify(userRepo, times(0)).findAll();
+    }
+
+    @Test
+    void streamAllUsers() {
+        when(userRepo.streamAll()).thenReturn(Stream.of(user1, user2));
+
+        List<UserDto> streamed = new ArrayList<>();
+        userService.streamAll(streamed::add);
+
+        assertEquals(List.of(userDto1, userDto2), streamed);
+        verify(userRepo, times(0)).findAll();
+    }
+
 }